@@ -74,7 +74,7 @@ public class AdvancedSettings extends JFrame implements ActionListener, ChangeLi
 		riskPanel.setBorder(new CompoundBorder(advancedMargins, advancedTitleBorder));
 		riskPanel.setLayout(new GridLayout(3, 1));
 
-		risk4_1 = new JSlider(JSlider.HORIZONTAL, 0, 100, 33);
+		risk4_1 = new JSlider(JSlider.HORIZONTAL, 0, 100, 0);
 		risk4_1.setMajorTickSpacing(25);
 		risk4_1.setMinorTickSpacing(1);
 		risk4_1.setPaintTicks(true);
@@ -82,7 +82,7 @@ public class AdvancedSettings extends JFrame implements ActionListener, ChangeLi
 		risk4_1.setSnapToTicks(true);
 		risk4_1.addChangeListener(this);
 
-		risk4_2 = new JSlider(JSlider.HORIZONTAL, 0, 100, 33);
+		risk4_2 = new JSlider(JSlider.HORIZONTAL, 0, 100, 0);
 		risk4_2.setMajorTickSpacing(25);
 		risk4_2.setMinorTickSpacing(1);
 		risk4_2.setPaintTicks(true);
@@ -90,7 +90,7 @@ public class AdvancedSettings extends JFrame implements ActionListener, ChangeLi
 		risk4_2.setSnapToTicks(true);
 		risk4_2.addChangeListener(this);
 
-		risk4_3 = new JSlider(JSlider.HORIZONTAL, 0, 100, 33);
+		risk4_3 = new JSlider(JSlider.HORIZONTAL, 0, 100, 0);
 		risk4_3.setMajorTickSpacing(25);
 		risk4_3.setMinorTickSpacing(1);
 		risk4_3.setPaintTicks(true);
@@ -154,44 +154,24 @@ public class AdvancedSettings extends JFrame implements ActionListener, ChangeLi
 	}
 
 	/**
-	*	Every time a slider is moved, the other sliders need to adjust
-	*	to a value totalling 100
+	*	Every time a slider is moved, the other sliders give way, starting with the
+	*	one after it, so that no more than 100% of the agents are in a tier
+	*	The agents left over are in no tier and do not buy on margin
 	*/
 	void updateSliders(JSlider sl) {
-		if (sl==risk4_1) {
-			removeListeners();
-			int val = 100 - sl.getValue();
-			if (val%2==0) {
-				risk4_2.setValue(2*val/3); 
-				risk4_3.setValue(val/3 + 1);
-			} else {
-				risk4_2.setValue((val-1)/3);
-				risk4_3.setValue(2*(val-1)/3 + 1);
-			}
-			addListeners();
-		} else if (sl==risk4_2) {
-			removeListeners();
-			int val = 100 - sl.getValue();
-			if (val%2==0) {
-				risk4_3.setValue(2*val/3);
-				risk4_1.setValue(val/3 + 1);
-			} else {
-				risk4_1.setValue((val-1)/3);
-				risk4_3.setValue(2*(val-1)/3 + 1);
-			}
-			addListeners();
-		} else if (sl==risk4_3) {
-			removeListeners();
-			int val = 100 - sl.getValue();
-			if (val%2==0) {
-				risk4_2.setValue(val/3 + 1); 
-				risk4_1.setValue(2*val/3);
-			} else {
-				risk4_1.setValue(2*(val-1)/3);
-				risk4_2.setValue((val-1)/3 + 1);
-			}
-			addListeners();
+		int over = -100;
+		for (JSlider slider : sliders) {
+			over += slider.getValue();
 		}
+		removeListeners();
+		int start = sliders.indexOf(sl);
+		for (int i = 1; i < sliders.size() && over > 0; i++) {
+			JSlider other = sliders.get((start + i) % sliders.size());
+			int cut = Math.min(over, other.getValue());
+			other.setValue(other.getValue() - cut);
+			over -= cut;
+		}
+		addListeners();
 	}
 
 	public void stateChanged(ChangeEvent e) {
@@ -203,9 +183,9 @@ public class AdvancedSettings extends JFrame implements ActionListener, ChangeLi
 
 	public void resetSliders() {
 		removeListeners();
-		risk4_1.setValue(33);
-		risk4_2.setValue(33);
-		risk4_3.setValue(33);
+		risk4_1.setValue(0);
+		risk4_2.setValue(0);
+		risk4_3.setValue(0);
 		addListeners();
 	}
 
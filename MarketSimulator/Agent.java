@@ -1,13 +1,10 @@
 package MarketSimulator;
 
 import java.util.*;
-import java.util.stream.*;
-import java.util.Map.*;
-import java.security.*;
 
 /**
 *	Agent class is an object modelled after stock traders in the stock exchange.
-*	
+*
 *	An agent object contains all the information a stock trader would require
 *	to exist and complete operations in the marketplace, albeit simplified.
 *	This information includes:
@@ -15,7 +12,10 @@ import java.security.*;
 *	- a list or portfolio of stocks and the number of each stock they hold
 *	- a risk factor, random for each agent
 *	- 2 additional weight variables for the two remaining indices
-*	
+*
+*	The values themselves live in a row of an AgentStore, the agent object is a view
+*	over that row identified by the agent's id.
+*
 *	Operations which return the prices of stocks
 *	Operations which calculate the total assets of an agent instance based on the
 *	amount of cash in hand and the stocks they are currently holding
@@ -23,7 +23,7 @@ import java.security.*;
 *	Operations which calculate index values for all the stocks
 *	Operations which retrieve the lowest and highest of those stocks for each index
 *	Operations which calculate the best stock to invest in
-*	
+*
 *	@author Alexandros Antoniou
 */
 public class Agent {
@@ -33,77 +33,138 @@ public class Agent {
 	public static final int UPPER_BOUND_STARTING_CASH = 120000;
 	public static final int RISK_LOWER_LIMIT = 1;
 	public static final int RISK_UPPER_LIMIT = 1000;
+	public static final int ORDER_SPREAD_TICKS = 10;
 
-	private Random rand;
-	public int transactions;
-	private int risk;
-	private int peWeight;
-	private int epsWeight;
-	private int overcommitTier;
-	private double cash;
+	private AgentStore store;
+	private int id;
+	private RandomSource random;
 	private Stock tradeStock;
-	private HashMap<Stock, Integer> stocks = new HashMap<Stock, Integer>();
-	private HashMap<Stock, Double> volatilities = new HashMap<Stock, Double>();
-	private HashMap<Stock, Double> EPSRatio = new HashMap<Stock, Double>();
-	private HashMap<Stock, Double> PERatio = new HashMap<Stock, Double>();
-	private HashMap<Stock, Double> totalIndex = new HashMap<Stock, Double>();
-	private ArrayList<SortedStock> sortedStocks;
+	private MarketSnapshot valuedAt;
 
 	/**
-	*	Initialises agent instance with standard amount of cash and weights for the three indices
+	*	Initialises agent instance over a row of the agent store and draws the weights for the three indices
+	*	The cash and stocks of the agent are the ones already in its row
+	*	@param newStore store holding the agent's values
+	*	@param newId id of the agent's row in the store
+	*	@param newRandom random number generator split off the run's generator
 	*/
-	Agent() {
-		this.transactions = 0;
-		this.cash = Agent.STANDARD_STARTING_CASH;
-		this.stocks = new HashMap<Stock, Integer>();
-		calcAgentRiskAndWeights();
+	Agent(AgentStore newStore, int newId, RandomSource newRandom) {
+		this(newStore, newId, newRandom, true);
 	}
 
 	/**
-	*	Initialises agent instance with specified amount of cash and weights for the three indices
-	*	@param startingCash cash of agent when initialised
+	*	Initialises agent instance over a row of the agent store
+	*	@param newStore store holding the agent's values
+	*	@param newId id of the agent's row in the store
+	*	@param newRandom random number generator split off the run's generator
+	*	@param drawWeights whether the weights are drawn, or are already in the row, e.g. when restoring a checkpoint
 	*/
-	Agent(double startingCash) {
-		this.transactions = 0;
-		this.cash = startingCash;
-		stocks = new HashMap<Stock, Integer>();
-		calcAgentRiskAndWeights();
+	Agent(AgentStore newStore, int newId, RandomSource newRandom, boolean drawWeights) {
+		this.store = newStore;
+		this.id = newId;
+		this.random = newRandom;
+		if (drawWeights) {
+			calcAgentRiskAndWeights();
+		}
+	}
+
+	public void calcAgentRiskAndWeights() {
+		calcAgentRiskAndWeights(RISK_LOWER_LIMIT, RISK_UPPER_LIMIT);
 	}
 
 	/**
-	*	Initialises agent instance with specified amount of cash and
-	*	specified set of stocks and weights for the three indices
-	*	@param startingCash cash of agent instance when initialised
-	*	@param startingStocks stocks of agent instance when initialised
+	*	Draws the agent's risk, PE weight and EPS weight, each uniformly between the lower
+	*	limit and the lower limit plus the upper limit
+	*	@param lowerLimit lowest value drawn
+	*	@param upperLimit range of the values drawn above the lower limit
 	*/
-	Agent(double startingCash, HashMap<Stock, Integer> startingStocks) {
-		this.transactions = 0;
-		this.cash = startingCash;
-		stocks = startingStocks;
-		calcAgentRiskAndWeights();
+	public void calcAgentRiskAndWeights(int lowerLimit, int upperLimit) {
+		store.risk[id] = lowerLimit + random.nextInt(upperLimit + 1);
+		store.peWeight[id] = lowerLimit + random.nextInt(upperLimit + 1);
+		store.epsWeight[id] = lowerLimit + random.nextInt(upperLimit + 1);
 	}
 
-	public void calcAgentRiskAndWeights() {
-		rand = new Random();
-		this.risk = RISK_LOWER_LIMIT + rand.nextInt(RISK_UPPER_LIMIT + 1);
-		this.peWeight = RISK_LOWER_LIMIT + rand.nextInt(RISK_UPPER_LIMIT + 1);
-		this.epsWeight = RISK_LOWER_LIMIT + rand.nextInt(RISK_UPPER_LIMIT + 1);
+	public int getAgentId() {
+		return this.id;
+	}
+
+	RandomSource getRandomSource() {
+		return this.random;
+	}
+
+	public AgentStore getStore() {
+		return this.store;
 	}
 
 	public double getAgentCash() {
-		return this.cash;
+		return store.cash[id];
 	}
 
+	/**
+	*	@return a copy of the agent's portfolio, the number of each stock the agent holds
+	*/
 	public HashMap<Stock, Integer> getAgentPortfolio() {
-		return this.stocks;
+		HashMap<Stock, Integer> portfolio = new HashMap<Stock, Integer>();
+		int row = store.row(id);
+		for (int s = 0; s < store.getStockCount(); s++) {
+			portfolio.put(store.getStock(s), store.holdings[row + s]);
+		}
+		return portfolio;
 	}
 
+	/**
+	*	Builds a list of the agent's preferred stocks from its ranking, most preferred first
+	*	The ranking itself is kept in the agent store, the list is a copy for display
+	*	@return the agent's ranked stocks with their total index values
+	*/
 	public ArrayList<SortedStock> getSortedPortfolio() {
-		return this.sortedStocks;
+		int rankRow = store.rankRow(id);
+		int count = store.rankedCount[id];
+		ArrayList<SortedStock> sorted = new ArrayList<SortedStock>(count);
+		for (int r = 0; r < count; r++) {
+			sorted.add(new SortedStock(store.getStock(store.rankedStocks[rankRow + r]), store.rankedValues[rankRow + r]));
+		}
+		return sorted;
+	}
+
+	/**
+	*	@return number of stocks in the agent's ranking, 0 before the first evaluation
+	*/
+	public int getRankedCount() {
+		return store.rankedCount[id];
+	}
+
+	/**
+	*	@param rank position in the agent's ranking, 0 being the most preferred stock
+	*	@return stock at that position
+	*/
+	public Stock getRankedStock(int rank) {
+		return store.getStock(store.rankedStocks[store.rankRow(id) + rank]);
 	}
 
+	/**
+	*	@return the agent's most preferred stock, or null before the first evaluation
+	*/
+	public Stock getPreferredStock() {
+		if (store.rankedCount[id] == 0) {
+			return null;
+		}
+		return getRankedStock(0);
+	}
+
+	/**
+	*	@return share of the value of its stocks the agent may borrow against, 0 if it is in no overcommitment tier
+	*/
 	public double getOvercommitTier() {
-		switch(this.overcommitTier) {
+		return overcommitLimit(store.overcommitTier[id]);
+	}
+
+	/**
+	*	@param tier overcommitment tier, 1 to 3, or 0 for none
+	*	@return share of the value of its stocks an agent in the tier may borrow against
+	*/
+	static double overcommitLimit(int tier) {
+		switch(tier) {
 			case 1: return 0.4;
 			case 2: return 0.7;
 			case 3: return 0.95;
@@ -111,8 +172,19 @@ public class Agent {
 		}
 	}
 
+	/**
+	*	@return whether the agent is margin called and may not buy any stocks
+	*/
+	public boolean isMarginCalled() {
+		return store.getMarginAccounts() != null && store.getMarginAccounts().isMarginCalled(id);
+	}
+
 	public int getAgentStockVolume(Stock s) {
-		return stocks.get(s);
+		return store.holdings[store.row(id) + s.getStockId()];
+	}
+
+	public int getTransactions() {
+		return store.transactions[id];
 	}
 
 	/**
@@ -123,242 +195,185 @@ public class Agent {
 	*	@return total assets of agent as defined above as a Double
 	*/
 	public double getAgentAssets() {
-		double totalStockValue = 0.0;
-		if (this.stocks == null && this.cash == 0.0) {
-			totalStockValue = 0.0;
-		} else if (this.stocks == null && this.cash != 0.0) {
-			totalStockValue = this.cash;
-		} else{
-			for (Map.Entry<Stock, Integer> stock : this.stocks.entrySet()) {
-				double stockVal = stock.getKey().getStockPrice() * stock.getValue();
-				totalStockValue += stockVal;
-			}
-		}
-		return totalStockValue + cash;
+		return store.getAssets(id);
 	}
 
 	/**
-	*	Returns a string containing all the names of each stock that an 
+	*	Returns a string containing all the names of each stock that an
 	*	agent owns currently
 	*	@return all names of stocks in possession of agent as String
 	*/
 	public String getAgentStockNames() {
 		String stockName = "";
-		System.out.println(this.stocks.size());
-		if (this.stocks == null) {
-			return "No Stocks";
-		} else{
-			for (Map.Entry<Stock, Integer> stock : this.stocks.entrySet()) {
-				stockName += stock.getKey().getStockName();
+		int row = store.row(id);
+		for (int s = 0; s < store.getStockCount(); s++) {
+			if (store.holdings[row + s] > 0) {
+				stockName += store.getStock(s).getStockName();
 			}
-			return stockName;
 		}
-	}
-
-	/**
-	*	Iterates through the agent's stocks and calculates all the volatilities of the stocks in the agent's portfolio
-	*	Takes into account the risk variable for each agent
-	*/
-	public void calcPortfolioVolatilities() {
-		for (Map.Entry<Stock, Integer> stock : this.stocks.entrySet()) {
-			double stockVolat = stock.getKey().calcVolatility();
-			volatilities.put(stock.getKey(), stockVolat);
+		if (stockName.isEmpty()) {
+			return "No Stocks";
 		}
-		normaliseVolatilities();
+		return stockName;
 	}
 
 	/**
-	*	Iterates through the agent's stocks and normalises all the volatilities of the stocks in the agent's portfolio
-	*	The normalised values range from 0 to 50 and replace the raw volatilities in the hashmap
+	*	Weighs the scaled volatility, EPS and PE of a stock by the agent's risk, EPS weight
+	*	and PE weight and adds them together
+	*	@param market snapshot of the day, holding the scaled factors of every stock
+	*	@param stockId id of the stock
+	*	@return total index value of the stock for this agent
 	*/
-	public void normaliseVolatilities() {
-		double a = Collections.min(volatilities.entrySet(), 
-			Map.Entry.comparingByValue()).getValue();
-		double b = Collections.max(volatilities.entrySet(), 
-			Map.Entry.comparingByValue()).getValue();
-		if (b==0.0) {
-			b = 1;
-		}
-		double a_norm = 1;
-		double b_norm = 1000;
-		for (Map.Entry<Stock, Double> stock : this.volatilities.entrySet()) {
-			double stockVolatNormalised = a_norm + (stock.getValue() - a)*(b_norm - a_norm)/(b - a);
-			volatilities.put(stock.getKey(), stockVolatNormalised*this.risk);
-		}
-		volatilities.entrySet().stream().sorted(Entry.<Stock, Double>comparingByValue()).collect(Collectors.toMap(Entry::getKey, Entry::getValue, (e1, e2)->e1, HashMap::new));
+	public double calcStockValue(MarketSnapshot market, int stockId) {
+		double total = 0;
+		total += market.getVolatilityFactor(stockId)*store.risk[id];
+		total += market.getEPSFactor(stockId)*store.epsWeight[id];
+		total += market.getPEFactor(stockId)*store.peWeight[id];
+		return total;
 	}
 
 	/**
-	*	Iterates through the agent's stocks and calculates all the EPS ratios for the companies of the stocks in the agent's portfolio
+	*	Re-evaluates the whole portfolio of the agent for the current day
+	*	The total index of every stock is calculated and offered straight to the agent's
+	*	ranking, so the totals of all the stocks are never stored
+	*	The snapshot does not change while the agents read it and the agent only writes to its own row of the store,
+	*	so different agents can be evaluated on different threads at the same time
+	*	@param market snapshot of the current day
 	*/
-	public void calcPortfolioEPS() {
-		for (Map.Entry<Stock, Integer> stock : this.stocks.entrySet()) {
-			double stockEPS = stock.getKey().company.getEarningsPerStock();
-			EPSRatio.put(stock.getKey(), stockEPS);
+	public void evaluatePortfolio(MarketSnapshot market) {
+		this.valuedAt = market;
+		int[] ids = store.rankedStocks;
+		double[] values = store.rankedValues;
+		int from = store.rankRow(id);
+		int k = store.getRankingSize();
+		int risk = store.risk[id];
+		int epsWeight = store.epsWeight[id];
+		int peWeight = store.peWeight[id];
+		int size = 0;
+		for (int s = 0; s < store.getStockCount(); s++) {
+			double total = 0;
+			total += market.getVolatilityFactor(s)*risk;
+			total += market.getEPSFactor(s)*epsWeight;
+			total += market.getPEFactor(s)*peWeight;
+			size = TopKRanking.offer(ids, values, from, size, k, s, total);
 		}
-		normaliseEPS();
+		TopKRanking.sort(ids, values, from, size);
+		store.rankedCount[id] = size;
 	}
 
-	/**
-	*	Iterates through the agent's stocks and normalises all the earnings per stock of the stocks in the agent's portfolio
-	*	The normalised values range from 0 to 2 and replace the raw earnings per stock in the hashmap
-	*/
-	public void normaliseEPS() {
-		double a = Collections.min(EPSRatio.entrySet(), 
-			Map.Entry.comparingByValue()).getValue();
-		double b = Collections.max(EPSRatio.entrySet(), 
-			Map.Entry.comparingByValue()).getValue();
-		double a_norm = 1;
-		double b_norm = 1000;
-		for (Map.Entry<Stock, Double> stock : this.EPSRatio.entrySet()) {
-			double stockEPSNormalised = a_norm + (stock.getValue() - a)*(b_norm - a_norm)/(b - a);
-			EPSRatio.put(stock.getKey(), stockEPSNormalised*this.epsWeight);
-		}
-		EPSRatio.entrySet().stream().sorted(Entry.<Stock, Double>comparingByValue()).collect(Collectors.toMap(Entry::getKey, Entry::getValue, (e1, e2)->e1, HashMap::new));
+	public void printAllIndices() {
+		// System.out.print("Weights used:\tRisk: " + this.risk + " EPS: " + this.epsWeight+" PE: " + this.peWeight);
+		System.out.println(getSortedPortfolio());
 	}
 
 	/**
-	*	Iterates through the agent's stocks and calculates all the Price/Earnings ratios of the stocks in the agent's portfolio
+	*	@return the stock with the highest total index on the day of the last evaluation, or null before it
 	*/
-	public void calcPortfolioPE() {
-		for (Map.Entry<Stock, Integer> stock : this.stocks.entrySet()) {
-			double stockPE = stock.getKey().calcPERatio();
-			PERatio.put(stock.getKey(), stockPE);
+	public Map.Entry<Stock, Double> getBestStockInvestment() {
+		if (valuedAt == null) {
+			return null;
 		}
-		normalisePE();
-	}
-
-	/**
-	*	Iterates through the agent's stocks and normalises all the price-earnings ratios of the stocks in the agent's portfolio
-	*	The normalised values range from 0 to 2 and replace the raw price-earnings ratios in the hashmap
-	*/
-	public void normalisePE() {
-		double a = Collections.min(PERatio.entrySet(), 
-			Map.Entry.comparingByValue()).getValue();
-		double b = Collections.max(PERatio.entrySet(), 
-			Map.Entry.comparingByValue()).getValue();
-		double a_norm = 1;
-		double b_norm = 1000;
-		for (Map.Entry<Stock, Double> stock : PERatio.entrySet()) {
-			double stockPENormalised = a_norm + (stock.getValue() - a)*(b_norm - a_norm)/(b - a);
-			PERatio.put(stock.getKey(), stockPENormalised *this.peWeight);
+		int best = 0;
+		double bestValue = calcStockValue(valuedAt, 0);
+		for (int s = 1; s < store.getStockCount(); s++) {
+			double value = calcStockValue(valuedAt, s);
+			if (value > bestValue) {
+				best = s;
+				bestValue = value;
+			}
 		}
-		PERatio.entrySet().stream().sorted(Entry.<Stock, Double>comparingByValue()).collect(Collectors.toMap(Entry::getKey, Entry::getValue, (e1, e2)->e1, HashMap::new));
+		return new AbstractMap.SimpleImmutableEntry<Stock, Double>(store.getStock(best), bestValue);
 	}
 
 	/**
-	*	Iterates through the agent's stocks and adds all of the indices for each stock together
-	*	The total index value is added into a totalIndex hashmap along with a reference to its stock
+	*	@return the stock with the lowest total index on the day of the last evaluation, or null before it
 	*/
-	public void calcStockValue() {
-		double total;
-		for (Map.Entry<Stock, Integer> stockEntry : this.stocks.entrySet()) {
-			total = 0;
-			total += volatilities.get(stockEntry.getKey());
-			total += EPSRatio.get(stockEntry.getKey());
-			total += PERatio.get(stockEntry.getKey());
-			totalIndex.put(stockEntry.getKey(), total);
-		}
-	}
-
-	public void printAllIndices() {
-		// System.out.print("Weights used:\tRisk: " + this.risk + " EPS: " + this.epsWeight+" PE: " + this.peWeight);
-		System.out.println(sortedStocks);
-	}
-
-	public Map.Entry<Stock, Double> getBestStockInvestment() {
-		Map.Entry<Stock, Double> bestIndex = Collections.max(this.totalIndex.entrySet(), 
-			Map.Entry.comparingByValue());
-		return bestIndex;
-	}
-
 	public Map.Entry<Stock, Double> getWorstStockInvestment() {
-		Map.Entry<Stock, Double> worstIndex = Collections.min(this.totalIndex.entrySet(), Map.Entry.comparingByValue());
-		return worstIndex;
+		if (valuedAt == null) {
+			return null;
+		}
+		int worst = 0;
+		double worstValue = calcStockValue(valuedAt, 0);
+		for (int s = 1; s < store.getStockCount(); s++) {
+			double value = calcStockValue(valuedAt, s);
+			if (value < worstValue) {
+				worst = s;
+				worstValue = value;
+			}
+		}
+		return new AbstractMap.SimpleImmutableEntry<Stock, Double>(store.getStock(worst), worstValue);
 	}
 
 	/**
-	*	Sorts the agent's stocks by value from highest to lowest
+	*	Walks the agent's ranking of stocks and for each one looks up the agents whose best
+	*	investment is that stock, the first one found is returned
+	*	@param tradeIndex index of agents by their best ranked stock
+	*	@return agent to engage in transaction
 	*/
-	public void sortStocksByValue() {
-		sortedStocks = new ArrayList<SortedStock>();
-		totalIndex.entrySet().stream()
-			.sorted((e1, e2)->-e1.getValue().compareTo(e2.getValue()))
-			.forEach(e->sortedStocks.add(new SortedStock(e.getKey(), e.getValue())));
-		// custom comparator to sort the stocks in descending order
-		Collections.sort(sortedStocks, new Comparator<SortedStock>() {
-			@Override
-			public int compare(SortedStock s1, SortedStock s2) {
-				if (s1.getTotalIndex()>s2.getTotalIndex()) {
-					return 1;
-				}
-				if (s1.getTotalIndex()<s2.getTotalIndex()) {
-					return -1;
-				}
-				return 0;
+	public Agent findTradeAgent(TradeIndex tradeIndex) {
+		int count = store.rankedCount[id];
+		for (int r = 0; r < count; r++) {
+			Stock sCandidate = getRankedStock(r);
+			Agent a = tradeIndex.getFirstAgent(sCandidate);
+			if (a != null) {
+				this.tradeStock = sCandidate;
+				return a;
 			}
-		});
+		}
+		return null;
 	}
-	
+
 	/**
-	*	Receives arraylist of all agents and finds an agent among them whose best investment
-	*	matches the stock this agent wants to buy, and returns that agent
-	*	@return agent to engage in transaction
+	*	Places the agent's orders of the day in the order books of the stocks
+	*	The agent bids for its most preferred stock a few ticks above the stock's price,
+	*	if it can pay for the whole order with its cash or margin account, and offers a randomly picked stock it
+	*	holds enough of a few ticks below the price
+	*	Orders are settled by the books' listener
+	*	@param books order book of every stock, indexed by stock id
+	*	@param quantity number of stocks of every order, the marketplace's trade size
 	*/
-	public Agent findTradeAgent(ArrayList<Agent> agents) {
-		Iterator<SortedStock> it = this.sortedStocks.iterator();
-		while(it.hasNext()) {
-			SortedStock ent = it.next();
-			Stock sCandidate = ent.getStock();
-			for (Agent a : agents) {
-				Stock sChecked = a.getSortedPortfolio().iterator().next().getStock();
-				if (sCandidate.equals(sChecked)) {
-					this.tradeStock = sCandidate;
-					return a;
-				}
+	public void placeOrders(OrderBook[] books, int quantity) {
+		Stock preferred = getPreferredStock();
+		if (preferred != null) {
+			OrderBook book = books[preferred.getStockId()];
+			int limit = book.toTick(preferred.getStockPrice()) + 1 + random.nextInt(ORDER_SPREAD_TICKS);
+			if (store.canBuy(id, book.toPrice(limit) * quantity)) {
+				book.buy(id, limit, quantity);
 			}
 		}
-		return null;
+		Stock offered = store.getStock(random.nextInt(store.getStockCount()));
+		if (offered != preferred && this.getAgentStockVolume(offered) > quantity) {
+			OrderBook book = books[offered.getStockId()];
+			int limit = book.toTick(offered.getStockPrice()) - 1 - random.nextInt(ORDER_SPREAD_TICKS);
+			book.sell(id, limit, quantity);
+		}
 	}
+
 	/**
-	*	Complete the transaction by removing cash from this agent, adding the cash to the chosen
-	*	agent, then removing the stocks from the chosen agent and adding them to this agent
-	*	The transaction only goes through if the chosen agent has enough of the stock and this agent
-	*	has enough cash for the purchase
-	*	@param a chosen agent for the transaction 
+	*	@return the stock picked by the last call to findTradeAgent
 	*/
-	public void makeTrade(Agent a) {
-		double calcCash = (this.tradeStock.getStockPrice() + Stock.TICK_SIZE) * MarketPlace.MARKETPLACE_TRADE_MAX;
-		
-		if (this.cash>calcCash && a.getAgentStockVolume(this.tradeStock)>MarketPlace.MARKETPLACE_TRADE_MAX) {
-			//take cash from agent making trade give him stock
-			this.setAgentStock(this.tradeStock, MarketPlace.MARKETPLACE_TRADE_MAX);
-			this.setAgentCash(-calcCash);
-			//take stock from agent accepting trade give him cash 
-			a.setAgentStock(this.tradeStock, -MarketPlace.MARKETPLACE_TRADE_MAX);
-			a.setAgentCash(calcCash);
-			this.transactions++;
-		}
+	public Stock getTradeStock() {
+		return this.tradeStock;
 	}
-	
+
 
 	public int getRisk() {
-		return this.risk;
+		return store.risk[id];
 	}
 
 	public int getEPS() {
-		return this.epsWeight;
+		return store.epsWeight[id];
 	}
 
 	public int getPE() {
-		return this.peWeight;
+		return store.peWeight[id];
 	}
 
 	public void setAgentStock(Stock s, int numberOfStocks) {
-		this.stocks.put(s, this.stocks.get(s)+numberOfStocks);
+		store.addHoldings(id, s.getStockId(), numberOfStocks);
 	}
 
 	public void setAgentCash(double addedCash) {
-		this.cash += addedCash;
+		store.addCash(id, addedCash);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,216 @@
+package MarketSimulator;
+
+import java.util.List;
+
+/**
+*	AgentStore holds the state of every agent in the marketplace in flat primitive arrays.
+*
+*	Each agent is a row identified by its id and each stock is a column identified by its
+*	stock id. The holdings, the number of each stock an agent owns, are kept in a dense
+*	agent x stock matrix stored row by row, so the holdings of one agent are next to each
+*	other in memory. It is the only matrix of that size, 4 bytes per agent and stock: the
+*	agents' valuations of the stocks are recalculated every day and never stored.
+*	Per-agent values (cash, weights, transactions) are kept in arrays indexed by agent id.
+*	The ranking of each agent's preferred stocks is kept in agent x rank matrices of a
+*	fixed width, the ranking size, which the agents overwrite every day.
+*
+*	Going through the agents on every day is then a walk over contiguous arrays rather
+*	than over HashMaps of boxed values. Agent objects are thin views over a row of the store
+*	and are what the rest of the program, e.g. the tables of the MarketPlace window, works with.
+*
+*	Every change to the holdings goes through the store, which keeps the value of every
+*	agent's stocks in an AssetLedger, so an agent's total assets are known without going
+*	over its portfolio.
+*
+*	When some agents are in an overcommitment tier the store is given their MarginAccounts,
+*	and whether a buyer can pay for a trade is then decided by its account.
+*
+*	@author Alexandros Antoniou
+*/
+public class AgentStore {
+
+	private Stock[] stocks;
+	private int stockCount;
+	private int capacity;
+	private int size;
+	private int rankingSize;
+	private AssetLedger ledger;
+	private MarginAccounts marginAccounts;
+
+	double[] cash;
+	int[] risk;
+	int[] peWeight;
+	int[] epsWeight;
+	int[] overcommitTier;
+	int[] transactions;
+	int[] holdings;
+	int[] rankedStocks;
+	double[] rankedValues;
+	int[] rankedCount;
+
+	/**
+	*	@param universe every stock of the marketplace, the position of a stock in the list must be its id
+	*	@param newCapacity maximum number of agents the store holds
+	*	@param newRankingSize maximum number of preferred stocks ranked per agent, capped at the number of stocks
+	*/
+	AgentStore(List<Stock> universe, int newCapacity, int newRankingSize) {
+		this.stockCount = universe.size();
+		this.stocks = new Stock[stockCount];
+		for (int i = 0; i < stockCount; i++) {
+			if (universe.get(i).getStockId() != i) {
+				throw new IllegalArgumentException("Stock " + universe.get(i).getStockName() + " is not at the position of its id");
+			}
+			stocks[i] = universe.get(i);
+		}
+		if ((long)newCapacity * stockCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many agents for " + stockCount + " stocks: " + newCapacity);
+		}
+		this.capacity = newCapacity;
+		int cells = newCapacity * stockCount;
+		this.cash = new double[newCapacity];
+		this.risk = new int[newCapacity];
+		this.peWeight = new int[newCapacity];
+		this.epsWeight = new int[newCapacity];
+		this.overcommitTier = new int[newCapacity];
+		this.transactions = new int[newCapacity];
+		this.holdings = new int[cells];
+		this.rankingSize = Math.max(1, Math.min(newRankingSize, stockCount));
+		this.rankedStocks = new int[newCapacity * rankingSize];
+		this.rankedValues = new double[newCapacity * rankingSize];
+		this.rankedCount = new int[newCapacity];
+		this.ledger = new AssetLedger(this, newCapacity);
+	}
+
+	/**
+	*	Adds a new agent with no stocks to the store
+	*	@param startingCash cash of the agent
+	*	@return id of the new agent
+	*/
+	int addAgent(double startingCash) {
+		if (size == capacity) {
+			throw new IllegalStateException("Agent store is full: " + capacity);
+		}
+		cash[size] = startingCash;
+		return size++;
+	}
+
+	public int getAgentCount() {
+		return this.size;
+	}
+
+	public int getStockCount() {
+		return this.stockCount;
+	}
+
+	public Stock getStock(int stockId) {
+		return this.stocks[stockId];
+	}
+
+	/**
+	*	@param agentId id of the agent
+	*	@return position of the agent's first cell in the agent x stock matrices
+	*/
+	int row(int agentId) {
+		return agentId * stockCount;
+	}
+
+	public int getRankingSize() {
+		return this.rankingSize;
+	}
+
+	/**
+	*	@param agentId id of the agent
+	*	@return position of the agent's first cell in the agent x rank matrices
+	*/
+	int rankRow(int agentId) {
+		return agentId * rankingSize;
+	}
+
+	public double getCash(int agentId) {
+		return this.cash[agentId];
+	}
+
+	void addCash(int agentId, double addedCash) {
+		this.cash[agentId] += addedCash;
+	}
+
+	public int getHoldings(int agentId, int stockId) {
+		return this.holdings[row(agentId) + stockId];
+	}
+
+	void setHoldings(int agentId, int stockId, int volume) {
+		int cell = row(agentId) + stockId;
+		ledger.traded(agentId, stockId, volume - holdings[cell]);
+		this.holdings[cell] = volume;
+	}
+
+	void addHoldings(int agentId, int stockId, int volume) {
+		ledger.traded(agentId, stockId, volume);
+		this.holdings[row(agentId) + stockId] += volume;
+	}
+
+	public AssetLedger getLedger() {
+		return this.ledger;
+	}
+
+	/**
+	*	Total assets are defined as the amount of cash of the agent
+	*	plus the number of each stock multiplied by the price of the stock
+	*	The value of the stocks is the one kept by the ledger, at the prices of its last mark
+	*	@param agentId id of the agent
+	*	@return total assets of the agent
+	*/
+	public double getAssets(int agentId) {
+		return ledger.getStockValue(agentId) + cash[agentId];
+	}
+
+	public MarginAccounts getMarginAccounts() {
+		return this.marginAccounts;
+	}
+
+	/**
+	*	From now on buyers pay for their trades through their margin accounts
+	*	@param accounts margin accounts of the agents, null if every agent pays with its cash
+	*/
+	void setMarginAccounts(MarginAccounts accounts) {
+		this.marginAccounts = accounts;
+	}
+
+	/**
+	*	@return whether the agent can pay for a purchase, with its cash or its margin account
+	*/
+	boolean canBuy(int agentId, double cost) {
+		if (marginAccounts == null) {
+			return cash[agentId] > cost;
+		}
+		return marginAccounts.canBuy(agentId, cost);
+	}
+
+	/**
+	*	Trades a number of stocks between two agents if the buyer can pay for the trade
+	*	and the seller holds more stocks than the trade's volume
+	*	The buyer is counted a transaction
+	*	@param buyer id of the agent buying
+	*	@param seller id of the agent selling
+	*	@param stockId id of the stock traded
+	*	@param sharePrice price paid per stock
+	*	@param volume number of stocks traded
+	*	@return whether the trade went through
+	*/
+	boolean trade(int buyer, int seller, int stockId, double sharePrice, int volume) {
+		double cost = sharePrice * volume;
+		if (canBuy(buyer, cost) && holdings[row(seller) + stockId] > volume) {
+			addHoldings(buyer, stockId, volume);
+			addCash(buyer, -cost);
+			addHoldings(seller, stockId, -volume);
+			addCash(seller, cost);
+			transactions[buyer]++;
+			return true;
+		}
+		return false;
+	}
+
+	public int getTransactions(int agentId) {
+		return this.transactions[agentId];
+	}
+}
@@ -0,0 +1,208 @@
+package MarketSimulator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+*	AssetLedger keeps the value of every agent's stocks up to date as the agents trade and
+*	the prices move, so the total assets of an agent are a lookup rather than a pass over
+*	its whole portfolio.
+*
+*	Every stock has the price it was last marked at, and every agent the value of its
+*	holdings at those prices. A change to the holdings adds the volume bought or takes
+*	away the volume sold at the marked price, in constant time. Marking to market goes
+*	through the stocks once and lists the ones whose price moved; each agent then adds the
+*	price change of those stocks times its holdings of them, reading only its own row of
+*	the holdings matrix. The work of a mark is proportional to the number of moved stocks
+*	and not to the size of the universe, e.g. after the order books have traded only a
+*	few stocks, and since every agent only writes its own value, the agents can be marked
+*	on several threads at once.
+*
+*	When nothing reads the ledger every day, i.e. no agent trades on margin, the engine
+*	does not mark it and only tells it the prices moved. The ledger then values every
+*	agent again from its holdings the next time a value is read, e.g. for the results at
+*	the end of the run. Otherwise the values are revalued from the holdings every
+*	REVALUE_DAYS days, so the rounding of the incremental updates does not build up.
+*
+*	@author Alexandros Antoniou
+*/
+public class AssetLedger {
+
+	public static final int MARK_BATCH = 4096;
+	public static final int REVALUE_DAYS = 250;
+
+	private AgentStore store;
+	private double[] stockValues;
+	private double[] markedPrices;
+	private int[] moved;
+	private double[] changes;
+	private int movedCount;
+	private boolean stale;
+
+	/**
+	*	Marks every stock at its current price, no agent holds anything yet
+	*	@param newStore store whose holdings are valued
+	*	@param capacity maximum number of agents
+	*/
+	AssetLedger(AgentStore newStore, int capacity) {
+		this.store = newStore;
+		int stockCount = store.getStockCount();
+		this.stockValues = new double[capacity];
+		this.markedPrices = new double[stockCount];
+		this.moved = new int[stockCount];
+		this.changes = new double[stockCount];
+		for (int s = 0; s < stockCount; s++) {
+			markedPrices[s] = store.getStock(s).getStockPrice();
+		}
+	}
+
+	/**
+	*	Values stocks bought or sold at their marked price
+	*	Only the agent's own value is written, so different agents can trade on different threads
+	*	@param agentId id of the agent
+	*	@param stockId id of the stock
+	*	@param volume number of stocks bought, negative for stocks sold
+	*/
+	void traded(int agentId, int stockId, int volume) {
+		stockValues[agentId] += markedPrices[stockId] * volume;
+	}
+
+	/**
+	*	@return value of the agent's stocks at the prices they were last marked at, which
+	*	are the current prices if the ledger had been told they moved
+	*/
+	public double getStockValue(int agentId) {
+		if (stale) {
+			revalue(null);
+		}
+		return this.stockValues[agentId];
+	}
+
+	/**
+	*	Tells the ledger the prices moved without marking it, the values are brought up to
+	*	date the next time one is read
+	*/
+	void invalidate() {
+		this.stale = true;
+	}
+
+	/**
+	*	@return price the stock was last marked at
+	*/
+	public double getMarkedPrice(int stockId) {
+		return this.markedPrices[stockId];
+	}
+
+	/**
+	*	Marks every agent to the current prices
+	*	@param pool pool the agents are split across, null to mark them on the calling thread
+	*	@return number of stocks whose price moved since the last mark
+	*/
+	public int markToMarket(ForkJoinPool pool) {
+		int stockCount = store.getStockCount();
+		movedCount = 0;
+		for (int s = 0; s < stockCount; s++) {
+			double price = store.getStock(s).getStockPrice();
+			if (price != markedPrices[s]) {
+				moved[movedCount] = s;
+				changes[movedCount] = price - markedPrices[s];
+				markedPrices[s] = price;
+				movedCount++;
+			}
+		}
+		if (movedCount > 0) {
+			int agentCount = store.getAgentCount();
+			if (pool == null || agentCount <= MARK_BATCH) {
+				markRange(0, agentCount);
+			} else {
+				pool.invoke(new Mark(this, 0, agentCount, false));
+			}
+		}
+		stale = false;
+		return movedCount;
+	}
+
+	/**
+	*	Values the holdings of every agent from scratch at the current prices, which
+	*	become the marked prices
+	*	@param pool pool the agents are split across, null to value them on the calling thread
+	*/
+	public void revalue(ForkJoinPool pool) {
+		for (int s = 0; s < markedPrices.length; s++) {
+			markedPrices[s] = store.getStock(s).getStockPrice();
+		}
+		int agentCount = store.getAgentCount();
+		if (pool == null || agentCount <= MARK_BATCH) {
+			valueRange(0, agentCount);
+		} else {
+			pool.invoke(new Mark(this, 0, agentCount, true));
+		}
+		stale = false;
+	}
+
+	private void markRange(int from, int to) {
+		int[] holdings = store.holdings;
+		int stockCount = store.getStockCount();
+		for (int a = from; a < to; a++) {
+			int row = a * stockCount;
+			double change = 0;
+			for (int m = 0; m < movedCount; m++) {
+				change += changes[m] * holdings[row + moved[m]];
+			}
+			stockValues[a] += change;
+		}
+	}
+
+	private void valueRange(int from, int to) {
+		int[] holdings = store.holdings;
+		int stockCount = store.getStockCount();
+		for (int a = from; a < to; a++) {
+			int row = a * stockCount;
+			double value = 0;
+			for (int s = 0; s < stockCount; s++) {
+				value += markedPrices[s] * holdings[row + s];
+			}
+			stockValues[a] = value;
+		}
+	}
+
+	double[] getMarkedPrices() {
+		return this.markedPrices;
+	}
+
+	double[] getStockValues() {
+		return this.stockValues;
+	}
+
+	/**
+	*	Fork-join task marking or revaluing a range of the agents
+	*	Ranges larger than MARK_BATCH are split in half
+	*/
+	@SuppressWarnings("serial")
+	static class Mark extends RecursiveAction {
+		private AssetLedger ledger;
+		private int from;
+		private int to;
+		private boolean revalue;
+
+		Mark(AssetLedger newLedger, int newFrom, int newTo, boolean newRevalue) {
+			this.ledger = newLedger;
+			this.from = newFrom;
+			this.to = newTo;
+			this.revalue = newRevalue;
+		}
+
+		protected void compute() {
+			if (to - from <= MARK_BATCH) {
+				if (revalue) {
+					ledger.valueRange(from, to);
+				} else {
+					ledger.markRange(from, to);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Mark(ledger, from, middle, revalue), new Mark(ledger, middle, to, revalue));
+		}
+	}
+}
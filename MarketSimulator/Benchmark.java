@@ -0,0 +1,259 @@
+package MarketSimulator;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+*	The Benchmark class measures the hot paths of a simulation day.
+*
+*	Each benchmark is run for a number of warmup iterations, whose results are discarded,
+*	followed by the measured iterations. Every iteration repeats the operation for a fixed
+*	amount of time and reports the throughput in operations per second together with the
+*	bytes allocated per operation, read from the JVM's per-thread allocation counter.
+*
+*	Benchmarks:
+*	- stock.update      Stock.updateStockPrice for every stock
+*	- stock.volatility  Stock.calcVolatility for every stock
+*	- agent.evaluate    the portfolio evaluation chain of every agent
+*	- agent.match       rebuilding the trade index and finding a partner for every agent
+*	- engine.tick       a whole simulation day, reported in ticks per second
+*	- book.events       ORDER_EVENTS random order events on a single order book: limit orders
+*	                    around a fixed price that rest or match, and cancellations
+*
+*	Every benchmark is parameterised over the number of agents, the number of stocks and
+*	the length of the price history the stocks start with, e.g.
+*
+*	java MarketSimulator.Benchmark --agents 50,500 --stocks 9 --history 0,10000
+*
+*	With --universe synthetic the stocks are generated instead of read from the CSVs,
+*	so any number of them can be benchmarked, and --threads sets the number of threads
+*	evaluating the agents, e.g.
+*
+*	java MarketSimulator.Benchmark --universe synthetic --agents 100000 --stocks 1000 --threads 8 --filter engine.tick
+*
+*	@author Alexandros Antoniou
+*/
+public class Benchmark {
+
+	public static final long DEFAULT_SEED = 1606172;
+	public static final int ORDER_EVENTS = 1000;
+
+	private static volatile double sink;
+
+	private int warmupIterations = 3;
+	private int iterations = 5;
+	private long iterationMillis = 1000;
+	private String filter = "";
+	private boolean synthetic;
+	private int threads = 1;
+	private com.sun.management.ThreadMXBean threadBean;
+
+	Benchmark() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			threadBean = (com.sun.management.ThreadMXBean)bean;
+			if (!threadBean.isThreadAllocatedMemorySupported()) {
+				threadBean = null;
+			} else {
+				threadBean.setThreadAllocatedMemoryEnabled(true);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		Benchmark benchmark = new Benchmark();
+		int[] agentCounts = {50};
+		int[] stockCounts = {9};
+		int[] historyLengths = {0};
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+				case "--agents": agentCounts = parseList(value); break;
+				case "--stocks": stockCounts = parseList(value); break;
+				case "--history": historyLengths = parseList(value); break;
+				case "--warmup": benchmark.warmupIterations = Integer.parseInt(value); break;
+				case "--iterations": benchmark.iterations = Integer.parseInt(value); break;
+				case "--time": benchmark.iterationMillis = Long.parseLong(value); break;
+				case "--filter": benchmark.filter = value; break;
+				case "--universe": benchmark.synthetic = value.equals("synthetic"); break;
+				case "--threads": benchmark.threads = Integer.parseInt(value); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		System.out.println(String.format("%-18s %8s %7s %8s %16s %12s %12s",
+			"Benchmark", "agents", "stocks", "history", "ops/s", "error", "B/op"));
+		for (int agents : agentCounts) {
+			for (int stocks : stockCounts) {
+				for (int history : historyLengths) {
+					benchmark.runAll(agents, stocks, history);
+				}
+			}
+		}
+	}
+
+	private static int[] parseList(String value) {
+		String[] parts = value.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+
+	/**
+	*	Creates a marketplace with the given parameters and runs every benchmark on it
+	*	The stocks are given history by updating their prices before any agent is evaluated
+	*/
+	void runAll(int agents, int stocks, int history) throws IOException {
+		final SimulationEngine engine = createEngine(agents, stocks, history);
+		final ArrayList<Stock> stockList = engine.getStocks();
+		final ArrayList<Agent> agentList = engine.getAgents();
+		final TradeIndex tradeIndex = new TradeIndex();
+
+		run("stock.update", agents, stocks, history, new Runnable() {
+			public void run() {
+				for (Stock s : stockList) {
+					s.updateStockPrice();
+				}
+			}
+		});
+
+		run("stock.volatility", agents, stocks, history, new Runnable() {
+			public void run() {
+				double total = 0;
+				for (Stock s : stockList) {
+					total += s.calcVolatility();
+				}
+				sink = total;
+			}
+		});
+
+		run("agent.evaluate", agents, stocks, history, new Runnable() {
+			public void run() {
+				engine.evaluateAgents();
+			}
+		});
+
+		run("agent.match", agents, stocks, history, new Runnable() {
+			public void run() {
+				tradeIndex.rebuild(agentList);
+				int found = 0;
+				for (Agent a : agentList) {
+					if (a.findTradeAgent(tradeIndex) != null) {
+						found++;
+					}
+				}
+				sink = found;
+			}
+		});
+
+		run("engine.tick", agents, stocks, history, new Runnable() {
+			public void run() {
+				engine.tick();
+			}
+		});
+		engine.shutdown();
+
+		final OrderBook book = new OrderBook(0);
+		final int[] handles = new int[1024];
+		final RandomSource events = new RandomSource(DEFAULT_SEED);
+		Arrays.fill(handles, OrderBook.NO_ORDER);
+		run("book.events", agents, stocks, history, new Runnable() {
+			public void run() {
+				for (int i = 0; i < ORDER_EVENTS; i++) {
+					int r = events.nextInt();
+					int slot = (r >>> 2) & (handles.length - 1);
+					if ((r & 3) == 0) {
+						book.cancel(handles[slot]);
+						handles[slot] = OrderBook.NO_ORDER;
+						continue;
+					}
+					int tick = 10000 + ((r >>> 12) & 63) - 32;
+					int quantity = 1 + ((r >>> 18) & 255);
+					handles[slot] = (r & 1) == 0 ? book.buy(i, tick, quantity) : book.sell(i, tick, quantity);
+				}
+				if (book.getOrderCount() > 100000) {
+					book.clear();
+				}
+				sink = book.getBestBid();
+			}
+		});
+	}
+
+	SimulationEngine createEngine(int agents, int stocks, int history) throws IOException {
+		SimulationConfig config = new SimulationConfig(agents, stocks, Integer.MAX_VALUE, DEFAULT_SEED);
+		config.setParallelism(threads);
+		if (synthetic) {
+			config.setUniverseGenerator(new UniverseGenerator());
+		}
+		SimulationEngine engine = new SimulationEngine(config);
+		for (int i = 0; i < history; i++) {
+			for (Stock s : engine.getStocks()) {
+				s.updateStockPrice();
+			}
+		}
+		engine.getMarketData().update(engine.getDay());
+		engine.evaluateAgents();
+		return engine;
+	}
+
+	/**
+	*	Runs the warmup and measured iterations of a single benchmark and prints the result
+	*/
+	void run(String name, int agents, int stocks, int history, Runnable operation) {
+		if (!name.startsWith(filter)) {
+			return;
+		}
+		for (int i = 0; i < warmupIterations; i++) {
+			iterate(operation);
+		}
+		double[] throughput = new double[iterations];
+		double totalOps = 0;
+		long totalBytes = 0;
+		for (int i = 0; i < iterations; i++) {
+			long startBytes = allocatedBytes();
+			long start = System.nanoTime();
+			long ops = iterate(operation);
+			long elapsed = System.nanoTime() - start;
+			totalBytes += allocatedBytes() - startBytes;
+			totalOps += ops;
+			throughput[i] = ops * 1e9 / elapsed;
+		}
+		double mean = 0;
+		for (double t : throughput) {
+			mean += t / iterations;
+		}
+		double sqrDev = 0;
+		for (double t : throughput) {
+			sqrDev += (t - mean) * (t - mean);
+		}
+		double error = iterations > 1 ? Math.sqrt(sqrDev / (iterations - 1)) : 0.0;
+		String bytesPerOp = threadBean == null ? "n/a" : String.format("%.1f", totalBytes / totalOps);
+		System.out.println(String.format("%-18s %8d %7d %8d %16.2f %12.2f %12s",
+			name, agents, stocks, history, mean, error, bytesPerOp));
+	}
+
+	/**
+	*	Repeats the operation until the iteration time is up
+	*	@return number of times the operation ran
+	*/
+	private long iterate(Runnable operation) {
+		long deadline = System.nanoTime() + iterationMillis * 1000000L;
+		long ops = 0;
+		do {
+			operation.run();
+			ops++;
+		} while (System.nanoTime() < deadline);
+		return ops;
+	}
+
+	private long allocatedBytes() {
+		if (threadBean == null) {
+			return 0;
+		}
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
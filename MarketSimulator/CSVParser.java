@@ -1,15 +1,20 @@
 package MarketSimulator;
 
-import java.util.Scanner;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Random;
 import java.util.Arrays;
-import java.io.FileNotFoundException;
-import java.util.HashMap;
+import java.util.List;
 /**
 *	This class is responsible for reading the CSVs containg information about the companies and stocks
-*	It reads each CSV line by line and returns a HashMap of two arraylists mapping the companies to their stock
+*	It streams each CSV record by record through a CSVReader and returns the companies and their stocks as a Universe
+*
+*	The companies CSV holds a line per company: its number, name and income
+*	The stocks CSV holds a line per stock: the number of the company listing it, its name and starting price
+*	Only the first numberOfStock companies and their stocks are read
+*
+*	A price history CSV holds a line per past price of a stock: the number of the stock and the price,
+*	with the prices of every stock in the order they were recorded, oldest first
 *
 *	@author Alexandros Antoniou
 */
@@ -17,33 +22,79 @@ public class CSVParser {
 	public final static String COMPANIES_CSV = "CSVs/companies.csv";
 	public final static String STOCKS_CSV = "CSVs/stocks.csv";
 
-	public static HashMap<ArrayList<Company>, ArrayList<Stock>> parseCSV(int numberOfStock) throws FileNotFoundException {
-		File companyFile = new File(COMPANIES_CSV);
-		File stocksFile = new File(STOCKS_CSV);
+	public static Universe parseCSV(int numberOfStock) throws IOException {
+		return parseCSV(new File(COMPANIES_CSV), new File(STOCKS_CSV), numberOfStock);
+	}
 
+	/**
+	*	Reads the companies and stocks from the given CSVs
+	*	@param companyFile CSV of the companies
+	*	@param stocksFile CSV of the stocks
+	*	@param numberOfStock number of companies to read, with their stocks
+	*	@return the companies and stocks read
+	*	@throws IOException if either file can not be read
+	*/
+	public static Universe parseCSV(File companyFile, File stocksFile, int numberOfStock) throws IOException {
 		ArrayList<Company> arrayC = new ArrayList<Company>();
 		ArrayList<Stock> arrayS = new ArrayList<Stock>();
 
-		Scanner scan = new Scanner(companyFile);
-		scan.useDelimiter("\\n");
-		while(scan.hasNextLine()) {
-			String[] line = scan.next().split(",");
-			if (Integer.parseInt(line[0])<=numberOfStock) {
-				arrayC.add(new Company(line[1], Double.parseDouble(line[2])));
+		try (CSVReader csv = new CSVReader(companyFile)) {
+			while (csv.next()) {
+				if (csv.getInt(0)<=numberOfStock) {
+					arrayC.add(new Company(csv.getString(1), csv.getDouble(2)));
+				}
 			}
 		}
 
-		scan = new Scanner(stocksFile);
-		while(scan.hasNextLine()) {
-			String[] line = scan.next().split(",");
-			if (Integer.parseInt(line[0])<=numberOfStock) {
-				Company c = arrayC.get(Integer.parseInt(line[0])-1);
-				arrayS.add(new Stock(line[1], c, Double.parseDouble(line[2])));
+		try (CSVReader csv = new CSVReader(stocksFile)) {
+			while (csv.next()) {
+				int number = csv.getInt(0);
+				if (number<=numberOfStock) {
+					if (number < 1 || number > arrayC.size()) {
+						throw new IOException(stocksFile + ": line " + csv.getLineNumber() + ": no company " + number);
+					}
+					Company c = arrayC.get(number-1);
+					arrayS.add(new Stock(csv.getString(1), c, csv.getDouble(2)));
+				}
 			}
 		}
 
-		HashMap<ArrayList<Company>, ArrayList<Stock>> map = new HashMap<ArrayList<Company>, ArrayList<Stock>>();
-		map.put(arrayC, arrayS);
-		return map;
+		return new Universe(arrayC, arrayS);
+	}
+
+	/**
+	*	Reads the past prices of the stocks from a price history CSV and gives them to the stocks
+	*	The stocks keep their starting price as their latest price, after the past prices read
+	*	Lines of stocks beyond the given list are skipped
+	*	@param historyFile CSV of past prices
+	*	@param stocks stocks of the marketplace, the stock numbered n being at position n - 1
+	*	@throws IOException if the file can not be read or names a stock number below 1
+	*/
+	public static void parsePriceHistory(File historyFile, List<Stock> stocks) throws IOException {
+		double[][] prices = new double[stocks.size()][];
+		int[] counts = new int[stocks.size()];
+		try (CSVReader csv = new CSVReader(historyFile)) {
+			while (csv.next()) {
+				int number = csv.getInt(0);
+				if (number < 1) {
+					throw new IOException(historyFile + ": line " + csv.getLineNumber() + ": no stock " + number);
+				}
+				if (number > stocks.size()) {
+					continue;
+				}
+				int s = number - 1;
+				if (prices[s] == null) {
+					prices[s] = new double[16];
+				} else if (counts[s] == prices[s].length) {
+					prices[s] = Arrays.copyOf(prices[s], counts[s] * 2);
+				}
+				prices[s][counts[s]++] = csv.getDouble(1);
+			}
+		}
+		for (int s = 0; s < prices.length; s++) {
+			if (counts[s] > 0) {
+				stocks.get(s).setPastPrices(prices[s], counts[s]);
+			}
+		}
 	}
-}
\ No newline at end of file
+}
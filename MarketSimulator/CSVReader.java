@@ -0,0 +1,302 @@
+package MarketSimulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+*	CSVReader streams the records of a CSV file through memory mapped windows of the file.
+*
+*	The reader moves from one record to the next and only remembers where the fields of
+*	the current record start and end in the mapped window. Numbers are parsed straight
+*	from the bytes of the file, so reading numeric fields allocates nothing, and only the
+*	fields read as strings create objects. Files larger than a window are mapped one
+*	window after the other, a record only has to fit in a single window.
+*
+*	Fields are separated by commas and records by line breaks, \n or \r\n. A field in double
+*	quotes may hold commas, and a double quote inside it is written as two. Empty lines are skipped.
+*
+*	Decimal numbers of up to 15 significant digits and 22 decimal places, the form prices
+*	and incomes are written in, are parsed as an integer divided by a power of ten. Both
+*	are exact doubles, so the division rounds once and gives the same double as
+*	Double.parseDouble. Any other number is handed to Double.parseDouble.
+*
+*	@author Alexandros Antoniou
+*/
+public class CSVReader implements AutoCloseable {
+
+	public static final int WINDOW_SIZE = 1 << 26;
+	private static final int MAX_FAST_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private File source;
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long fileSize;
+	private int windowSize;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private int windowLimit;
+	private int position;
+	private int[] fieldStart = new int[8];
+	private int[] fieldEnd = new int[8];
+	private int fieldCount;
+	private long lineNumber;
+	private long nextLineNumber = 1;
+	private int recordBreaks;
+
+	/**
+	*	@param newSource CSV file to read
+	*	@throws IOException if the file can not be opened
+	*/
+	CSVReader(File newSource) throws IOException {
+		this(newSource, WINDOW_SIZE);
+	}
+
+	/**
+	*	@param newSource CSV file to read
+	*	@param newWindowSize number of bytes mapped at a time, the longest record the file may hold
+	*	@throws IOException if the file can not be opened
+	*/
+	CSVReader(File newSource, int newWindowSize) throws IOException {
+		this.source = newSource;
+		this.file = new RandomAccessFile(newSource, "r");
+		this.channel = file.getChannel();
+		this.fileSize = channel.size();
+		this.windowSize = newWindowSize;
+		map(0);
+	}
+
+	private void map(long start) throws IOException {
+		windowLimit = (int)Math.min(fileSize - start, windowSize);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowLimit);
+		windowStart = start;
+		position = 0;
+	}
+
+	/**
+	*	Moves to the next record of the file
+	*	@return false once every record has been read
+	*	@throws IOException if the file can not be read or a record does not fit in a window
+	*/
+	public boolean next() throws IOException {
+		while (true) {
+			if (position >= windowLimit) {
+				if (windowStart + windowLimit >= fileSize) {
+					return false;
+				}
+				map(windowStart + position);
+			}
+			int end = scanRecord(position);
+			if (end < 0) {
+				if (position == 0) {
+					throw new IOException(source + ": line " + nextLineNumber + " is longer than " + windowSize + " bytes");
+				}
+				map(windowStart + position);
+				continue;
+			}
+			position = end;
+			lineNumber = nextLineNumber;
+			nextLineNumber += 1 + recordBreaks;
+			if (fieldCount > 1 || fieldStart[0] < fieldEnd[0]) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	*	Finds the fields of the record starting at a position of the window
+	*	@return the position after the record, or -1 if the record runs past the end of the window
+	*/
+	private int scanRecord(int from) {
+		fieldCount = 0;
+		recordBreaks = 0;
+		int start = from;
+		boolean quoted = false;
+		for (int i = from; i < windowLimit; i++) {
+			byte b = window.get(i);
+			if (quoted) {
+				if (b == '"') {
+					if (i + 1 < windowLimit && window.get(i + 1) == '"') {
+						i++;
+					} else if (i + 1 == windowLimit && windowStart + windowLimit < fileSize) {
+						return -1;
+					} else {
+						quoted = false;
+					}
+				} else if (b == '\n') {
+					recordBreaks++;
+				}
+			} else if (b == '"' && i == start) {
+				quoted = true;
+			} else if (b == ',') {
+				addField(start, i);
+				start = i + 1;
+			} else if (b == '\n') {
+				addField(start, i > start && window.get(i - 1) == '\r' ? i - 1 : i);
+				return i + 1;
+			}
+		}
+		if (windowStart + windowLimit < fileSize) {
+			return -1;
+		}
+		addField(start, windowLimit > start && window.get(windowLimit - 1) == '\r' ? windowLimit - 1 : windowLimit);
+		return windowLimit;
+	}
+
+	private void addField(int start, int end) {
+		if (fieldCount == fieldStart.length) {
+			fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+			fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+		}
+		fieldStart[fieldCount] = start;
+		fieldEnd[fieldCount] = end;
+		fieldCount++;
+	}
+
+	/**
+	*	@return number of fields of the current record
+	*/
+	public int getFieldCount() {
+		return this.fieldCount;
+	}
+
+	/**
+	*	@return line of the file the current record starts on, counting from 1
+	*/
+	public long getLineNumber() {
+		return this.lineNumber;
+	}
+
+	private int checkField(int field) {
+		if (field < 0 || field >= fieldCount) {
+			throw new IllegalArgumentException(source + ": line " + lineNumber + " has no field " + (field + 1));
+		}
+		return field;
+	}
+
+	/**
+	*	@param field index of the field, counting from 0
+	*	@return the text of the field, without its quotes
+	*/
+	public String getString(int field) {
+		checkField(field);
+		int start = fieldStart[field];
+		int end = fieldEnd[field];
+		boolean quoted = end - start >= 2 && window.get(start) == '"' && window.get(end - 1) == '"';
+		if (quoted) {
+			start++;
+			end--;
+		}
+		byte[] bytes = new byte[end - start];
+		int length = 0;
+		for (int i = start; i < end; i++) {
+			byte b = window.get(i);
+			bytes[length++] = b;
+			if (quoted && b == '"') {
+				i++;
+			}
+		}
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	*	@param field index of the field, counting from 0
+	*	@return the field as an int
+	*	@throws NumberFormatException if the field is not a whole number that fits in an int
+	*/
+	public int getInt(int field) {
+		checkField(field);
+		int start = fieldStart[field];
+		int end = fieldEnd[field];
+		boolean negative = start < end && window.get(start) == '-';
+		int i = negative || (start < end && window.get(start) == '+') ? start + 1 : start;
+		long value = 0;
+		if (i == end || end - i > 10) {
+			return parseIntSlow(field);
+		}
+		for (; i < end; i++) {
+			int digit = window.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return parseIntSlow(field);
+			}
+			value = value * 10 + digit;
+		}
+		value = negative ? -value : value;
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			return parseIntSlow(field);
+		}
+		return (int)value;
+	}
+
+	private int parseIntSlow(int field) {
+		try {
+			return Integer.parseInt(getString(field).trim());
+		} catch(NumberFormatException e) {
+			throw new NumberFormatException(source + ": line " + lineNumber + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	*	@param field index of the field, counting from 0
+	*	@return the field as a double
+	*	@throws NumberFormatException if the field is not a number
+	*/
+	public double getDouble(int field) {
+		checkField(field);
+		int start = fieldStart[field];
+		int end = fieldEnd[field];
+		boolean negative = start < end && window.get(start) == '-';
+		int i = negative || (start < end && window.get(start) == '+') ? start + 1 : start;
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean point = false;
+		boolean any = false;
+		for (; i < end; i++) {
+			byte b = window.get(i);
+			int digit = b - '0';
+			if (digit >= 0 && digit <= 9) {
+				any = true;
+				if (mantissa != 0 || digit != 0) {
+					if (++digits > MAX_FAST_DIGITS) {
+						return parseDoubleSlow(field);
+					}
+				}
+				mantissa = mantissa * 10 + digit;
+				if (point) {
+					scale++;
+				}
+			} else if (b == '.' && !point) {
+				point = true;
+			} else {
+				return parseDoubleSlow(field);
+			}
+		}
+		if (!any || scale >= POWERS_OF_TEN.length) {
+			return parseDoubleSlow(field);
+		}
+		double value = mantissa / POWERS_OF_TEN[scale];
+		return negative ? -value : value;
+	}
+
+	private double parseDoubleSlow(int field) {
+		try {
+			return Double.parseDouble(getString(field));
+		} catch(NumberFormatException e) {
+			throw new NumberFormatException(source + ": line " + lineNumber + ": " + e.getMessage());
+		}
+	}
+
+	public void close() throws IOException {
+		window = null;
+		file.close();
+	}
+}
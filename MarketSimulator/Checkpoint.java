@@ -0,0 +1,558 @@
+package MarketSimulator;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+*	The Checkpoint class saves the complete state of a SimulationEngine to a binary file
+*	and restores an engine from it, so a run can be stopped and continued later with
+*	exactly the same results as if it had never stopped.
+*
+*	A checkpoint is captured between two days into direct byte buffers, which can then be
+*	written to disk on another thread while the engine carries on (see CheckpointWriter).
+*	Restoring maps the file and reads the agent arrays in bulk straight into a new
+*	AgentStore, then rebuilds the Company, Stock and Agent objects around it.
+*
+*	Layout of the file, little-endian, strings as an int length followed by UTF-8 bytes:
+*	- int magic, int version
+*	- the config: agents, stocks, days, seed, volatility tracker, threads, history limit,
+*	  ranking size, order book flag, the parameters of the universe generator if there is
+*	  one, the risk limits, trade size, tick size and overcommitment split
+*	- int day, then seed and gamma of the four generators of the engine
+*	- every company: name, income, market capitalisation, volume, earnings per stock
+*	- every stock: name, company index, price, price change, seed and gamma,
+*	  price history limit, total count and prices, volatility tracker
+*	- the agents: count, ranking size, then the cash, risk, PE weight, EPS weight,
+*	  overcommit tier and transactions arrays, the holdings matrix, the seeds and gammas
+*	  of the agents' generators and the agent ids in trading order
+*	- the price index and the market capitalisation index
+*	- the asset ledger: the price every stock was last marked at and the value of the
+*	  stocks of every agent, then a byte telling whether there are margin accounts, if
+*	  there are the account count and whether each is margin called
+*	- int magic, marking a complete file
+*
+*	@author Alexandros Antoniou
+*/
+public class Checkpoint {
+
+	public static final int MAGIC = 0x4d53434b;
+	public static final int VERSION = 1;
+	public static final int SEGMENT_SIZE = 1 << 26;
+
+	private Checkpoint() {
+	}
+
+	/**
+	*	Captures the state of the engine into the buffers of an output
+	*	Must be called between two days, from the thread running the engine
+	*	@param engine engine to capture
+	*	@param out output to write to, cleared first
+	*/
+	public static void capture(SimulationEngine engine, Output out) {
+		out.clear();
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+
+		SimulationConfig config = engine.getConfig();
+		out.putInt(config.getAgentNumber());
+		out.putInt(config.getStockNumber());
+		out.putInt(config.getSimulationLength());
+		out.putLong(config.getSeed());
+		out.putString(config.getVolatility());
+		out.putInt(config.getParallelism());
+		out.putInt(config.getHistoryLimit());
+		out.putInt(config.getRankingSize());
+		out.putByte((byte)(config.isOrderBookMarket() ? 1 : 0));
+		UniverseGenerator generator = config.getUniverseGenerator();
+		out.putByte((byte)(generator == null ? 0 : 1));
+		if (generator != null) {
+			out.putDouble(generator.getPriceMedian());
+			out.putDouble(generator.getPriceSpread());
+			out.putDouble(generator.getIncomeMedian());
+			out.putDouble(generator.getIncomeSpread());
+		}
+		out.putInt(config.getRiskLowerLimit());
+		out.putInt(config.getRiskUpperLimit());
+		out.putInt(config.getTradeMax());
+		out.putDouble(config.getTickSize());
+		for (int tier = 1; tier <= 3; tier++) {
+			out.putInt(config.getOvercommitShare(tier));
+		}
+
+		out.putInt(engine.getDay());
+		for (RandomSource r : engine.getGenerators()) {
+			out.putLong(r.getSeed());
+			out.putLong(r.getGamma());
+		}
+
+		ArrayList<Company> companies = engine.getCompanies();
+		IdentityHashMap<Company, Integer> companyIndex = new IdentityHashMap<Company, Integer>();
+		out.putInt(companies.size());
+		for (int i = 0; i < companies.size(); i++) {
+			Company c = companies.get(i);
+			companyIndex.put(c, i);
+			out.putString(c.getCompanyName());
+			out.putDouble(c.getIncome());
+			out.putDouble(c.getMarketCap());
+			out.putInt(c.getVolume());
+			out.putDouble(c.getEarningsPerStock());
+		}
+
+		ArrayList<Stock> stocks = engine.getStocks();
+		out.putInt(stocks.size());
+		for (Stock s : stocks) {
+			out.putString(s.getStockName());
+			out.putInt(companyIndex.get(s.getStockCompany()));
+			out.putDouble(s.getStockPrice());
+			out.putDouble(s.getStockPriceChange());
+			out.putLong(s.getRandomSource().getSeed());
+			out.putLong(s.getRandomSource().getGamma());
+			PriceHistory history = s.getPriceHistory();
+			double[] prices = history.toArray();
+			out.putInt(history.getLimit());
+			out.putLong(history.getTotalCount());
+			out.putInt(prices.length);
+			out.putDoubles(prices, 0, prices.length);
+			s.getVolatilityTracker().writeState(out);
+		}
+
+		AgentStore store = engine.getAgentStore();
+		int n = store.getAgentCount();
+		out.putInt(n);
+		out.putInt(store.getRankingSize());
+		out.putDoubles(store.cash, 0, n);
+		out.putInts(store.risk, 0, n);
+		out.putInts(store.peWeight, 0, n);
+		out.putInts(store.epsWeight, 0, n);
+		out.putInts(store.overcommitTier, 0, n);
+		out.putInts(store.transactions, 0, n);
+		out.putInts(store.holdings, 0, n * store.getStockCount());
+		Agent[] byId = new Agent[n];
+		for (Agent a : engine.getAgents()) {
+			byId[a.getAgentId()] = a;
+		}
+		for (int i = 0; i < n; i++) {
+			out.putLong(byId[i].getRandomSource().getSeed());
+		}
+		for (int i = 0; i < n; i++) {
+			out.putLong(byId[i].getRandomSource().getGamma());
+		}
+		for (Agent a : engine.getAgents()) {
+			out.putInt(a.getAgentId());
+		}
+
+		putSeries(out, engine.getIndex());
+		putSeries(out, engine.getMarketCap());
+		AssetLedger ledger = store.getLedger();
+		out.putDoubles(ledger.getMarkedPrices(), 0, store.getStockCount());
+		out.putDoubles(ledger.getStockValues(), 0, n);
+		MarginAccounts accounts = store.getMarginAccounts();
+		out.putByte((byte)(accounts == null ? 0 : 1));
+		if (accounts != null) {
+			out.putInt(accounts.getAccountCount());
+			for (boolean called : accounts.getMarginCalled()) {
+				out.putByte((byte)(called ? 1 : 0));
+			}
+		}
+		out.putInt(MAGIC);
+	}
+
+	private static void putSeries(Output out, ArrayList<Double> series) {
+		out.putInt(series.size());
+		for (Double v : series) {
+			out.putDouble(v);
+		}
+	}
+
+	/**
+	*	Writes a captured checkpoint to a file
+	*	The checkpoint is written next to the file first and then moved over it, so the
+	*	file always holds a complete checkpoint, the previous one if writing fails
+	*	@param out captured checkpoint
+	*	@param file file to write to
+	*/
+	public static void write(Output out, File file) throws IOException {
+		File partial = new File(file.getPath() + ".part");
+		try (FileChannel channel = FileChannel.open(partial.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (int i = 0; i <= out.current; i++) {
+				ByteBuffer segment = out.segments.get(i).duplicate();
+				segment.flip();
+				while (segment.hasRemaining()) {
+					channel.write(segment);
+				}
+			}
+			channel.force(false);
+		}
+		Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	*	Captures the engine and writes the checkpoint to a file on the calling thread
+	*/
+	public static void save(SimulationEngine engine, File file) throws IOException {
+		Output out = new Output();
+		capture(engine, out);
+		write(out, file);
+	}
+
+	/**
+	*	Recreates an engine from a checkpoint file
+	*	The engine continues from the day after the checkpoint was taken
+	*	@param file checkpoint file
+	*	@return the restored engine
+	*	@throws IOException if the file can not be read or is not a complete checkpoint
+	*/
+	public static SimulationEngine restore(File file) throws IOException {
+		try (Input in = new Input(file)) {
+			if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+				throw new IOException("Not a checkpoint: " + file);
+			}
+			SimulationConfig config = new SimulationConfig(in.getInt(), in.getInt(), in.getInt(), in.getLong());
+			String volatility = in.getString();
+			try {
+				config.setVolatility(volatility);
+			} catch(IllegalArgumentException e) {
+				throw new IOException("Checkpoint is corrupt, unknown volatility tracker " + volatility, e);
+			}
+			config.setParallelism(in.getInt());
+			config.setHistoryLimit(in.getInt());
+			config.setRankingSize(in.getInt());
+			config.setOrderBookMarket(in.getByte() != 0);
+			if (in.getByte() != 0) {
+				UniverseGenerator generator = new UniverseGenerator();
+				generator.setPriceMedian(in.getDouble());
+				generator.setPriceSpread(in.getDouble());
+				generator.setIncomeMedian(in.getDouble());
+				generator.setIncomeSpread(in.getDouble());
+				config.setUniverseGenerator(generator);
+			}
+			config.setRiskLimits(in.getInt(), in.getInt());
+			config.setTradeMax(in.getInt());
+			config.setTickSize(in.getDouble());
+			config.setOvercommitSplit(in.getInt(), in.getInt(), in.getInt());
+
+			int day = in.getInt();
+			RandomSource[] generators = new RandomSource[4];
+			for (int i = 0; i < generators.length; i++) {
+				generators[i] = new RandomSource(in.getLong(), in.getLong());
+			}
+
+			int companyCount = in.getLength();
+			ArrayList<Company> companies = new ArrayList<Company>(companyCount);
+			for (int i = 0; i < companyCount; i++) {
+				Company c = new Company(in.getString(), in.getDouble());
+				double marketCap = in.getDouble();
+				int volume = in.getInt();
+				c.restoreState(marketCap, volume, in.getDouble());
+				companies.add(c);
+			}
+
+			int stockCount = in.getLength();
+			ArrayList<Stock> stocks = new ArrayList<Stock>(stockCount);
+			for (int i = 0; i < stockCount; i++) {
+				String name = in.getString();
+				Company c = companies.get(in.getIndex(companyCount));
+				double price = in.getDouble();
+				double priceChange = in.getDouble();
+				Stock s = new Stock(name, c, price);
+				s.setStockId(i);
+				s.setTickSize(config.getTickSize());
+				s.setRandomSource(new RandomSource(in.getLong(), in.getLong()));
+				PriceHistory history = new PriceHistory(in.getLength());
+				long totalCount = in.getLong();
+				double[] prices = new double[in.getLength()];
+				in.getDoubles(prices, 0, prices.length);
+				for (double p : prices) {
+					history.add(p);
+				}
+				history.setTotalCount(totalCount);
+				s.restoreState(price, priceChange, history, VolatilityTracker.readState(in));
+				stocks.add(s);
+			}
+
+			int n = in.getLength();
+			AgentStore store = new AgentStore(stocks, n, in.getInt());
+			for (int i = 0; i < n; i++) {
+				store.addAgent(0);
+			}
+			in.getDoubles(store.cash, 0, n);
+			in.getInts(store.risk, 0, n);
+			in.getInts(store.peWeight, 0, n);
+			in.getInts(store.epsWeight, 0, n);
+			in.getInts(store.overcommitTier, 0, n);
+			in.getInts(store.transactions, 0, n);
+			in.getInts(store.holdings, 0, n * stockCount);
+			long[] seeds = new long[n];
+			for (int i = 0; i < n; i++) {
+				seeds[i] = in.getLong();
+			}
+			Agent[] byId = new Agent[n];
+			for (int i = 0; i < n; i++) {
+				byId[i] = new Agent(store, i, new RandomSource(seeds[i], in.getLong()), false);
+			}
+			ArrayList<Agent> agents = new ArrayList<Agent>(n);
+			for (int i = 0; i < n; i++) {
+				agents.add(byId[in.getIndex(n)]);
+			}
+
+			ArrayList<Double> index = getSeries(in);
+			ArrayList<Double> marketcap = getSeries(in);
+			AssetLedger ledger = store.getLedger();
+			in.getDoubles(ledger.getMarkedPrices(), 0, stockCount);
+			in.getDoubles(ledger.getStockValues(), 0, n);
+			boolean[] marginCalled = null;
+			if (in.getByte() != 0) {
+				marginCalled = new boolean[in.getLength()];
+				for (int i = 0; i < marginCalled.length; i++) {
+					marginCalled[i] = in.getByte() != 0;
+				}
+			}
+			if (in.getInt() != MAGIC) {
+				throw new IOException("Incomplete checkpoint: " + file);
+			}
+			SimulationEngine engine = new SimulationEngine(config, day, generators, companies, stocks, store, agents, index, marketcap);
+			MarginAccounts accounts = store.getMarginAccounts();
+			if (marginCalled != null && accounts != null) {
+				if (marginCalled.length != accounts.getAccountCount()) {
+					throw new IOException("Margin accounts do not match the agents' tiers: " + file);
+				}
+				accounts.restore(marginCalled);
+			}
+			if (accounts == null) {
+				ledger.invalidate();
+			}
+			return engine;
+		}
+	}
+
+	private static ArrayList<Double> getSeries(Input in) throws IOException {
+		int size = in.getLength();
+		ArrayList<Double> series = new ArrayList<Double>(size);
+		for (int i = 0; i < size; i++) {
+			series.add(in.getDouble());
+		}
+		return series;
+	}
+
+	/**
+	*	A growable list of direct byte buffers a checkpoint is captured into
+	*	The buffers are kept when the output is cleared, so capturing into the same
+	*	output again allocates nothing once it is large enough
+	*/
+	public static class Output {
+		private ArrayList<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+		private int current;
+		private ByteBuffer buffer;
+
+		public Output() {
+			clear();
+		}
+
+		public void clear() {
+			if (segments.isEmpty()) {
+				segments.add(ByteBuffer.allocateDirect(SEGMENT_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+			}
+			for (ByteBuffer segment : segments) {
+				segment.clear();
+			}
+			current = 0;
+			buffer = segments.get(0);
+		}
+
+		/**
+		*	@return number of bytes captured
+		*/
+		public long size() {
+			return (long)current * SEGMENT_SIZE + buffer.position();
+		}
+
+		private void ensure(int bytes) {
+			if (buffer.remaining() >= bytes) {
+				return;
+			}
+			current++;
+			if (current == segments.size()) {
+				segments.add(ByteBuffer.allocateDirect(SEGMENT_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+			}
+			buffer = segments.get(current);
+		}
+
+		void putByte(byte value) {
+			ensure(1);
+			buffer.put(value);
+		}
+
+		void putInt(int value) {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		void putDouble(double value) {
+			ensure(8);
+			buffer.putDouble(value);
+		}
+
+		void putString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			putInt(bytes.length);
+			for (byte b : bytes) {
+				putByte(b);
+			}
+		}
+
+		void putInts(int[] values, int from, int length) {
+			while (length > 0) {
+				ensure(4);
+				int chunk = Math.min(length, buffer.remaining() / 4);
+				buffer.asIntBuffer().put(values, from, chunk);
+				buffer.position(buffer.position() + chunk * 4);
+				from += chunk;
+				length -= chunk;
+			}
+		}
+
+		void putDoubles(double[] values, int from, int length) {
+			while (length > 0) {
+				ensure(8);
+				int chunk = Math.min(length, buffer.remaining() / 8);
+				buffer.asDoubleBuffer().put(values, from, chunk);
+				buffer.position(buffer.position() + chunk * 8);
+				from += chunk;
+				length -= chunk;
+			}
+		}
+	}
+
+	/**
+	*	Reads a checkpoint file through regions mapped one after the other
+	*/
+	static class Input implements AutoCloseable {
+		private RandomAccessFile file;
+		private FileChannel channel;
+		private MappedByteBuffer region;
+		private long regionStart;
+
+		Input(File checkpointFile) throws IOException {
+			this.file = new RandomAccessFile(checkpointFile, "r");
+			this.channel = file.getChannel();
+			this.region = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), SEGMENT_SIZE));
+			this.region.order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		/**
+		*	Maps the next region of the file from the current position if fewer bytes are left
+		*	in the current region than needed
+		*	@throws EOFException if the file ends first
+		*/
+		private void ensure(int bytes) throws IOException {
+			if (region.remaining() >= bytes) {
+				return;
+			}
+			long position = regionStart + region.position();
+			long size = Math.min(channel.size() - position, SEGMENT_SIZE);
+			if (size < bytes) {
+				throw new EOFException("Checkpoint ends unexpectedly at " + position);
+			}
+			region = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			region.order(ByteOrder.LITTLE_ENDIAN);
+			regionStart = position;
+		}
+
+		byte getByte() throws IOException {
+			ensure(1);
+			return region.get();
+		}
+
+		int getInt() throws IOException {
+			ensure(4);
+			return region.getInt();
+		}
+
+		long getLong() throws IOException {
+			ensure(8);
+			return region.getLong();
+		}
+
+		double getDouble() throws IOException {
+			ensure(8);
+			return region.getDouble();
+		}
+
+		/**
+		*	Reads the number of items that follow
+		*	@throws IOException if the number is negative, which no checkpoint writes
+		*/
+		int getLength() throws IOException {
+			int length = getInt();
+			if (length < 0) {
+				throw new IOException("Checkpoint is corrupt, negative length " + length);
+			}
+			return length;
+		}
+
+		/**
+		*	Reads an index into a list of the given size
+		*	@throws IOException if the index is outside the list
+		*/
+		int getIndex(int size) throws IOException {
+			int index = getInt();
+			if (index < 0 || index >= size) {
+				throw new IOException("Checkpoint is corrupt, index " + index + " outside 0 to " + (size - 1));
+			}
+			return index;
+		}
+
+		String getString() throws IOException {
+			byte[] bytes = new byte[getLength()];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = getByte();
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		void getInts(int[] values, int from, int length) throws IOException {
+			while (length > 0) {
+				ensure(4);
+				int chunk = Math.min(length, region.remaining() / 4);
+				region.asIntBuffer().get(values, from, chunk);
+				region.position(region.position() + chunk * 4);
+				from += chunk;
+				length -= chunk;
+			}
+		}
+
+		void getDoubles(double[] values, int from, int length) throws IOException {
+			while (length > 0) {
+				ensure(8);
+				int chunk = Math.min(length, region.remaining() / 8);
+				region.asDoubleBuffer().get(values, from, chunk);
+				region.position(region.position() + chunk * 8);
+				from += chunk;
+				length -= chunk;
+			}
+		}
+
+		public void close() throws IOException {
+			region = null;
+			file.close();
+		}
+	}
+}
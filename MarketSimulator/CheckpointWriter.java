@@ -0,0 +1,102 @@
+package MarketSimulator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+*	CheckpointWriter saves checkpoints of a running simulation to a file in the background.
+*
+*	The state of the engine is captured on the thread running the simulation, which only
+*	copies it into off-heap buffers, and the buffers are written to disk by a thread of
+*	the writer while the simulation carries on. The buffers are reused for every checkpoint.
+*	If the previous checkpoint is still being written when the next one is due, the next
+*	one is skipped rather than holding up the simulation.
+*
+*	@author Alexandros Antoniou
+*/
+public class CheckpointWriter implements Closeable {
+
+	private File file;
+	private Checkpoint.Output output = new Checkpoint.Output();
+	private ExecutorService executor;
+	private Future<?> pending;
+	private int written;
+	private int skipped;
+	private IOException failure;
+
+	/**
+	*	@param newFile file every checkpoint is written to, replacing the previous one
+	*/
+	CheckpointWriter(File newFile) {
+		this.file = newFile;
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "checkpoint-writer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	*	Captures the engine and starts writing the checkpoint in the background
+	*	Must be called between two days, from the thread running the engine
+	*	@param engine engine to checkpoint
+	*	@return false if the checkpoint was skipped because the previous one is still being written
+	*/
+	public synchronized boolean checkpoint(SimulationEngine engine) {
+		if (pending != null && !pending.isDone()) {
+			skipped++;
+			return false;
+		}
+		Checkpoint.capture(engine, output);
+		pending = executor.submit(this::write);
+		return true;
+	}
+
+	private void write() {
+		try {
+			Checkpoint.write(output, file);
+			synchronized (this) {
+				written++;
+			}
+		} catch(IOException e) {
+			synchronized (this) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	*	Waits for the checkpoint being written, if any, and stops the writer thread
+	*	@throws IOException if writing any of the checkpoints failed
+	*/
+	public void close() throws IOException {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	public synchronized int getWrittenCount() {
+		return this.written;
+	}
+
+	public synchronized int getSkippedCount() {
+		return this.skipped;
+	}
+}
@@ -86,4 +86,13 @@ public class Company {
 		calcEarningsPerStock();
 	}
 
+	/**
+	*	Restores the values of the company saved in a checkpoint
+	*/
+	void restoreState(double newMarketCap, int newVolume, double newEarningsPerStock) {
+		this.marketCap = newMarketCap;
+		this.volume = newVolume;
+		this.earningsPerStock = newEarningsPerStock;
+	}
+
 }
\ No newline at end of file
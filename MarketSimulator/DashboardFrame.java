@@ -0,0 +1,113 @@
+package MarketSimulator;
+
+/**
+*	DashboardFrame is a snapshot of a running simulation, taken on the thread running it
+*	and handed to the window to draw.
+*
+*	A frame holds the index values of the days since the previous frame rather than the
+*	whole index, the state of every stock at the time it was taken and, when the engine
+*	is profiled, a summary of its profiler. Nothing in a frame is changed after it is
+*	published, so the window reads it without any locking.
+*
+*	@author Alexandros Antoniou
+*/
+public class DashboardFrame {
+
+	private int day;
+	private int firstDay;
+	private double[] index;
+	private double[] marketcap;
+	private double[] stockPrices;
+	private double[] stockPriceChanges;
+	private double[] stockVolatilities;
+	private int[] stockVolumes;
+	private boolean finished;
+	private TickProfiler.Summary profile;
+
+	/**
+	*	@param newDay number of days simulated when the frame was taken
+	*	@param newFirstDay day of the first index value in the frame
+	*	@param newIndex price index of the days since the previous frame
+	*	@param newMarketcap market capitalisation index of the days since the previous frame
+	*	@param stockCount number of stocks the frame holds
+	*	@param newFinished whether this is the last frame of the run
+	*/
+	DashboardFrame(int newDay, int newFirstDay, double[] newIndex, double[] newMarketcap, int stockCount, boolean newFinished) {
+		this.day = newDay;
+		this.firstDay = newFirstDay;
+		this.index = newIndex;
+		this.marketcap = newMarketcap;
+		this.stockPrices = new double[stockCount];
+		this.stockPriceChanges = new double[stockCount];
+		this.stockVolatilities = new double[stockCount];
+		this.stockVolumes = new int[stockCount];
+		this.finished = newFinished;
+	}
+
+	/**
+	*	Records the state of a stock, only while the frame is being taken
+	*/
+	void setStock(int stockId, Stock s) {
+		stockPrices[stockId] = s.getStockPrice();
+		stockPriceChanges[stockId] = s.getStockPriceChange();
+		stockVolatilities[stockId] = s.getStockVolatility();
+		stockVolumes[stockId] = s.getStockCompany().getVolume();
+	}
+
+	/**
+	*	Records the summary of the engine's profiler, only while the frame is being taken
+	*/
+	void setProfile(TickProfiler.Summary newProfile) {
+		this.profile = newProfile;
+	}
+
+	/**
+	*	@return summary of the engine's profiler when the frame was taken, null if the engine is not profiled
+	*/
+	public TickProfiler.Summary getProfile() {
+		return this.profile;
+	}
+
+	public int getDay() {
+		return this.day;
+	}
+
+	public int getFirstDay() {
+		return this.firstDay;
+	}
+
+	public double[] getIndex() {
+		return this.index;
+	}
+
+	public double[] getMarketCap() {
+		return this.marketcap;
+	}
+
+	public int getStockCount() {
+		return this.stockPrices.length;
+	}
+
+	public double getStockPrice(int stockId) {
+		return this.stockPrices[stockId];
+	}
+
+	public double getStockPriceChange(int stockId) {
+		return this.stockPriceChanges[stockId];
+	}
+
+	public double getStockVolatility(int stockId) {
+		return this.stockVolatilities[stockId];
+	}
+
+	public int getStockVolume(int stockId) {
+		return this.stockVolumes[stockId];
+	}
+
+	/**
+	*	@return whether the simulation has finished, no frame follows this one
+	*/
+	public boolean isFinished() {
+		return this.finished;
+	}
+}
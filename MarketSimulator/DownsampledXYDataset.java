@@ -0,0 +1,222 @@
+package MarketSimulator;
+
+import java.util.Arrays;
+
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.event.AxisChangeEvent;
+import org.jfree.chart.event.AxisChangeListener;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/**
+*	DownsampledXYDataset plots a daily series, such as the price index, without handing
+*	JFreeChart a data item for every day.
+*
+*	The series stays in the primitive array it was given, with the day as x value. Only the
+*	days in the visible range of the domain axis are shown, split into one bucket per pixel
+*	of the chart's width, and of each bucket only the days with the lowest and highest
+*	values are passed on, in the order they happened. The line drawn through them covers
+*	the same pixels as the full series would, including every spike, so charts of a million
+*	days open as quickly as charts of a hundred.
+*
+*	The dataset listens to the domain axis and picks the days again whenever the chart is
+*	zoomed or panned, so zooming in brings back the detail down to single days.
+*	Days can be appended while a simulation runs, and a chart showing the latest day
+*	follows the new days as they come in.
+*
+*	@author Alexandros Antoniou
+*/
+@SuppressWarnings("serial")
+public class DownsampledXYDataset extends AbstractXYDataset implements AxisChangeListener {
+
+	public static final int DEFAULT_WIDTH = 600;
+
+	private String key;
+	private double[] values;
+	private int size;
+	private int width;
+	private int lower;
+	private int upper;
+	private int from = -1;
+	private int to = -1;
+	private int[] shown = new int[0];
+	private int shownCount;
+
+	/**
+	*	@param newKey name of the series
+	*	@param newValues value of every day, the day being the index
+	*/
+	DownsampledXYDataset(String newKey, double[] newValues) {
+		this.key = newKey;
+		this.values = newValues;
+		this.size = newValues.length;
+		this.width = DEFAULT_WIDTH;
+		select(0, size - 1);
+	}
+
+	/**
+	*	Creates an empty series, for days to be appended to
+	*	@param newKey name of the series
+	*/
+	DownsampledXYDataset(String newKey) {
+		this(newKey, new double[0]);
+	}
+
+	/**
+	*	Appends the values of the next days to the series
+	*	If the latest day was shown, the days shown are extended to the new latest day
+	*	@param newValues values to append
+	*/
+	public void append(double[] newValues) {
+		if (newValues.length == 0) {
+			return;
+		}
+		if (size + newValues.length > values.length) {
+			values = Arrays.copyOf(values, Math.max(size + newValues.length, values.length * 2));
+		}
+		boolean following = upper >= size - 1;
+		System.arraycopy(newValues, 0, values, size, newValues.length);
+		size += newValues.length;
+		from = -1;
+		select(lower, following ? size - 1 : upper);
+		fireDatasetChanged();
+	}
+
+	/**
+	*	@return number of days in the series
+	*/
+	public int getDayCount() {
+		return this.size;
+	}
+
+	/**
+	*	@return value of a day of the series
+	*/
+	public double getValue(int day) {
+		return this.values[day];
+	}
+
+	/**
+	*	Sets the number of pixels the series is drawn across, e.g. when the chart is resized
+	*	@param newWidth width of the plot in pixels
+	*/
+	public void setWidth(int newWidth) {
+		newWidth = Math.max(1, newWidth);
+		if (newWidth != width) {
+			width = newWidth;
+			from = -1;
+			select(lower, upper);
+			fireDatasetChanged();
+		}
+	}
+
+	/**
+	*	Picks the days shown again when the domain axis is zoomed or panned
+	*/
+	public void axisChanged(AxisChangeEvent event) {
+		ValueAxis axis = (ValueAxis)event.getAxis();
+		int newFrom = (int)Math.max(0, Math.floor(axis.getLowerBound()));
+		int newTo = (int)Math.min(size - 1, Math.ceil(axis.getUpperBound()));
+		if (select(newFrom, newTo)) {
+			fireDatasetChanged();
+		}
+	}
+
+	/**
+	*	Picks the days shown between two days, both included
+	*	One day before and after the range is kept so the line runs to the edges of the plot
+	*	@return whether the days shown changed
+	*/
+	private boolean select(int newLower, int newUpper) {
+		lower = newLower;
+		upper = newUpper;
+		int newFrom = Math.max(0, newLower - 1);
+		int newTo = Math.min(size - 1, newUpper + 1);
+		if (newFrom == from && newTo == to) {
+			return false;
+		}
+		from = newFrom;
+		to = newTo;
+		int count = to - from + 1;
+		if (count <= 0) {
+			shownCount = 0;
+			return true;
+		}
+		int buckets = Math.min(width, count);
+		if (shown.length < 2 * buckets + 2) {
+			shown = new int[2 * buckets + 2];
+		}
+		shownCount = 0;
+		if (count <= 2 * width) {
+			for (int i = from; i <= to; i++) {
+				shown[shownCount++] = i;
+			}
+			return true;
+		}
+		shown[shownCount++] = from;
+		for (int b = 0; b < buckets; b++) {
+			int start = from + (int)((long)count * b / buckets);
+			int end = from + (int)((long)count * (b + 1) / buckets);
+			int min = start;
+			int max = start;
+			for (int i = start + 1; i < end; i++) {
+				if (values[i] < values[min]) {
+					min = i;
+				}
+				if (values[i] > values[max]) {
+					max = i;
+				}
+			}
+			add(Math.min(min, max));
+			add(Math.max(min, max));
+		}
+		add(to);
+		return true;
+	}
+
+	private void add(int day) {
+		if (shown[shownCount - 1] != day) {
+			shown[shownCount++] = day;
+		}
+	}
+
+	/**
+	*	@return the days currently shown, in order
+	*/
+	int[] getShownDays() {
+		return Arrays.copyOf(shown, shownCount);
+	}
+
+	public int getSeriesCount() {
+		return 1;
+	}
+
+	@SuppressWarnings("rawtypes")
+	public Comparable getSeriesKey(int series) {
+		return key;
+	}
+
+	public DomainOrder getDomainOrder() {
+		return DomainOrder.ASCENDING;
+	}
+
+	public int getItemCount(int series) {
+		return shownCount;
+	}
+
+	public Number getX(int series, int item) {
+		return Double.valueOf(getXValue(series, item));
+	}
+
+	public Number getY(int series, int item) {
+		return Double.valueOf(getYValue(series, item));
+	}
+
+	public double getXValue(int series, int item) {
+		return shown[item];
+	}
+
+	public double getYValue(int series, int item) {
+		return values[shown[item]];
+	}
+}
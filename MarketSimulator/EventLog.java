@@ -0,0 +1,131 @@
+package MarketSimulator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+*	EventLog writes everything that happens in the marketplace to an append-only binary file.
+*
+*	The file starts with a header followed by fixed-width records, one per event:
+*	- a stock price update
+*	- a trade between two agents
+*	- the price index and market capitalisation index at the end of a day
+*
+*	Records are written straight into a memory-mapped region of the file, so a run of any
+*	length can be persisted without buffering the events on the heap. When a region is full
+*	the next one is mapped after it. The EventLogReader class streams the records back.
+*
+*	Layout of the header, little-endian:
+*	int magic, int version, int record size, int reserved, long record count, long reserved
+*
+*	Layout of a record, little-endian:
+*	int type, int day, int stock, int buyer, int seller, int volume, double value
+*	Fields that do not apply to an event are -1, the value is the price of the stock,
+*	the price per share of a trade or the value of the index.
+*
+*	@author Alexandros Antoniou
+*/
+public class EventLog implements Closeable {
+
+	public static final int MAGIC = 0x4d534556;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+	public static final int RECORD_SIZE = 32;
+	public static final int RECORDS_PER_REGION = 1 << 20;
+
+	public static final int PRICE = 1;
+	public static final int TRADE = 2;
+	public static final int PRICE_INDEX = 3;
+	public static final int MARKETCAP_INDEX = 4;
+
+	private static final long COUNT_OFFSET = 16;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private MappedByteBuffer region;
+	private long regionStart;
+	private long count;
+
+	/**
+	*	Creates the log file, replacing any existing file
+	*	@param logFile file to write to
+	*	@throws IOException if the file can not be created or mapped
+	*/
+	public EventLog(File logFile) throws IOException {
+		this.file = new RandomAccessFile(logFile, "rw");
+		this.file.setLength(0);
+		this.channel = file.getChannel();
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).putLong(0).putLong(0);
+		mapRegion(HEADER_SIZE);
+	}
+
+	private void mapRegion(long start) throws IOException {
+		if (region != null) {
+			region.force();
+		}
+		this.regionStart = start;
+		this.region = channel.map(FileChannel.MapMode.READ_WRITE, start, (long)RECORDS_PER_REGION * RECORD_SIZE);
+		this.region.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	*	@return number of records written so far
+	*/
+	public long getCount() {
+		return this.count;
+	}
+
+	public void price(int day, Stock s) throws IOException {
+		write(PRICE, day, s.getStockId(), -1, -1, -1, s.getStockPrice());
+	}
+
+	public void trade(int day, Stock s, Agent buyer, Agent seller, int volume, double sharePrice) throws IOException {
+		trade(day, s.getStockId(), buyer.getAgentId(), seller.getAgentId(), volume, sharePrice);
+	}
+
+	public void trade(int day, int stockId, int buyerId, int sellerId, int volume, double sharePrice) throws IOException {
+		write(TRADE, day, stockId, buyerId, sellerId, volume, sharePrice);
+	}
+
+	public void index(int day, double priceIndex, double marketcapIndex) throws IOException {
+		write(PRICE_INDEX, day, -1, -1, -1, -1, priceIndex);
+		write(MARKETCAP_INDEX, day, -1, -1, -1, -1, marketcapIndex);
+	}
+
+	/**
+	*	Appends a record, mapping the next region of the file when the current one is full
+	*/
+	void write(int type, int day, int stock, int buyer, int seller, int volume, double value) throws IOException {
+		if (!region.hasRemaining()) {
+			mapRegion(regionStart + region.capacity());
+		}
+		region.putInt(type).putInt(day).putInt(stock).putInt(buyer).putInt(seller).putInt(volume).putDouble(value);
+		count++;
+	}
+
+	/**
+	*	Flushes the records to disk, stores the record count in the header and
+	*	trims the unused part of the last region
+	*/
+	public void close() throws IOException {
+		region.force();
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		header.putLong((int)COUNT_OFFSET, count);
+		header.force();
+		region = null;
+		try {
+			channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+		} catch(IOException e) {
+			// some platforms refuse to truncate a mapped file, the reader relies on the count instead
+		}
+		file.close();
+	}
+}
@@ -0,0 +1,137 @@
+package MarketSimulator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+*	EventLogReader streams the records of a file written by EventLog.
+*
+*	The reader works like a cursor: next() moves to the following record and the
+*	getters return the fields of the current one, so no object is created per record.
+*	The file is mapped region by region as the cursor moves through it.
+*
+*	If the log was not closed properly the record count in the header is missing and the
+*	reader stops at the first empty record instead.
+*
+*	@author Alexandros Antoniou
+*/
+public class EventLogReader implements Closeable {
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private MappedByteBuffer region;
+	private long regionStart;
+	private long count;
+	private long position;
+	private int type;
+	private int day;
+	private int stock;
+	private int buyer;
+	private int seller;
+	private int volume;
+	private double value;
+
+	/**
+	*	@param logFile file written by an EventLog
+	*	@throws IOException if the file can not be read or is not an event log
+	*/
+	public EventLogReader(File logFile) throws IOException {
+		this.file = new RandomAccessFile(logFile, "r");
+		this.channel = file.getChannel();
+		if (channel.size() < EventLog.HEADER_SIZE) {
+			file.close();
+			throw new IOException("Not an event log: " + logFile);
+		}
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, EventLog.HEADER_SIZE);
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		int magic = header.getInt();
+		int version = header.getInt();
+		int recordSize = header.getInt();
+		header.getInt();
+		long headerCount = header.getLong();
+		if (magic != EventLog.MAGIC || version != EventLog.VERSION || recordSize != EventLog.RECORD_SIZE) {
+			file.close();
+			throw new IOException("Unsupported event log: " + logFile);
+		}
+		long available = (channel.size() - EventLog.HEADER_SIZE) / EventLog.RECORD_SIZE;
+		this.count = headerCount > 0 ? Math.min(headerCount, available) : available;
+		this.regionStart = EventLog.HEADER_SIZE;
+	}
+
+	/**
+	*	@return number of records in the file
+	*/
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	*	Moves to the next record
+	*	@return false when there are no more records
+	*/
+	public boolean next() throws IOException {
+		if (position >= count) {
+			return false;
+		}
+		if (region == null || !region.hasRemaining()) {
+			if (region != null) {
+				regionStart += region.capacity();
+			}
+			long remaining = (count - position) * EventLog.RECORD_SIZE;
+			long size = Math.min(remaining, (long)EventLog.RECORDS_PER_REGION * EventLog.RECORD_SIZE);
+			region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, size);
+			region.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		type = region.getInt();
+		if (type == 0) {
+			count = position;
+			return false;
+		}
+		day = region.getInt();
+		stock = region.getInt();
+		buyer = region.getInt();
+		seller = region.getInt();
+		volume = region.getInt();
+		value = region.getDouble();
+		position++;
+		return true;
+	}
+
+	public int getType() {
+		return this.type;
+	}
+
+	public int getDay() {
+		return this.day;
+	}
+
+	public int getStock() {
+		return this.stock;
+	}
+
+	public int getBuyer() {
+		return this.buyer;
+	}
+
+	public int getSeller() {
+		return this.seller;
+	}
+
+	public int getVolume() {
+		return this.volume;
+	}
+
+	public double getValue() {
+		return this.value;
+	}
+
+	public void close() throws IOException {
+		region = null;
+		file.close();
+	}
+}
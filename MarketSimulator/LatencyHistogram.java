@@ -0,0 +1,130 @@
+package MarketSimulator;
+
+import java.util.Arrays;
+
+/**
+*	LatencyHistogram counts durations in buckets of a fixed relative width, in the manner
+*	of HdrHistogram, so recording a value is a few shifts and an increment and no value is
+*	ever kept.
+*
+*	Values below SUB_BUCKETS each have a bucket of their own. Above that, every power of two
+*	is split into SUB_BUCKETS / 2 buckets of equal width, so a value is always counted in a
+*	bucket less than 1/64th of it wide, whatever its magnitude. Values up to HIGHEST, about
+*	18 minutes in nanoseconds, fit in a little over two thousand buckets; larger ones are
+*	counted in the last bucket.
+*
+*	@author Alexandros Antoniou
+*/
+public class LatencyHistogram {
+
+	public static final int SUB_BITS = 7;
+	public static final int SUB_BUCKETS = 1 << SUB_BITS;
+	public static final long HIGHEST = 1L << 40;
+
+	private long[] counts = new long[index(HIGHEST) + 1];
+	private long count;
+	private long total;
+	private long min = Long.MAX_VALUE;
+	private long max;
+
+	/**
+	*	@return bucket a value is counted in
+	*/
+	static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int)value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+		return (shift << (SUB_BITS - 1)) + (int)(value >>> shift);
+	}
+
+	/**
+	*	@return highest value counted in a bucket
+	*/
+	static long highestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index >>> (SUB_BITS - 1)) - 1;
+		long mantissa = index - (shift << (SUB_BITS - 1));
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+	/**
+	*	Counts a value, negative values are counted as 0 and values above HIGHEST as HIGHEST
+	*/
+	public void record(long value) {
+		long v = Math.max(0, Math.min(value, HIGHEST));
+		counts[index(v)]++;
+		count++;
+		total += v;
+		min = Math.min(min, v);
+		max = Math.max(max, v);
+	}
+
+	public long getCount() {
+		return this.count;
+	}
+
+	public long getTotal() {
+		return this.total;
+	}
+
+	/**
+	*	@return mean of the values counted, 0 if there are none
+	*/
+	public double getMean() {
+		return count == 0 ? 0 : (double)total / count;
+	}
+
+	/**
+	*	@return lowest value counted, 0 if there are none
+	*/
+	public long getMin() {
+		return count == 0 ? 0 : this.min;
+	}
+
+	public long getMax() {
+		return this.max;
+	}
+
+	/**
+	*	Finds the values below which the given shares of the values fall
+	*	All the percentiles are found in a single pass over the buckets
+	*	@param percentiles percentiles between 0 and 100, in increasing order
+	*	@return the highest value of the bucket every percentile falls in, capped at the largest value counted
+	*/
+	public long[] getValuesAtPercentiles(double... percentiles) {
+		long[] values = new long[percentiles.length];
+		if (count == 0) {
+			return values;
+		}
+		int p = 0;
+		long seen = 0;
+		for (int i = 0; i < counts.length && p < percentiles.length; i++) {
+			seen += counts[i];
+			while (p < percentiles.length && seen >= Math.max(1, Math.ceil(percentiles[p] / 100 * count))) {
+				values[p++] = Math.min(highestValue(i), max);
+			}
+		}
+		return values;
+	}
+
+	/**
+	*	@return the highest value of the bucket the percentile falls in
+	*/
+	public long getValueAtPercentile(double percentile) {
+		return getValuesAtPercentiles(percentile)[0];
+	}
+
+	/**
+	*	Forgets every value counted
+	*/
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+}
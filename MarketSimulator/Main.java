@@ -1,14 +1,232 @@
 package MarketSimulator;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
 /**
 *	The Main class is a simulation of a simplified Stock Exchange.
-*	A variable of type MarketPlace is declared and initialised to start
-*	the simulation.
+*	When started without arguments the settings window is shown and a
+*	MarketPlace is created from the chosen settings.
+*	When arguments are given the simulation runs headless through the
+*	SimulationEngine and a summary of the results is printed, e.g.
+*
+*	java MarketSimulator.Main --agents 50 --stocks 10 --days 500 --seed 42
 *
 *	@author Alexandros Antoniou
 */
 public class Main {
 	public static void main(String[] args) {
-		SimulationSettings settingsFrame = new SimulationSettings();
+		if (args.length == 0) {
+			SimulationSettings settingsFrame = new SimulationSettings();
+			return;
+		}
+
+		SimulationConfig config;
+		String eventFile = null;
+		String exportDirectory = null;
+		String checkpointFile = null;
+		String restoreFile = null;
+		int checkpointInterval = 0;
+		boolean lengthGiven = false;
+		for (int i = 0; i + 1 < args.length; i++) {
+			if (args[i].equals("--events")) {
+				eventFile = args[i + 1];
+			}
+			if (args[i].equals("--export")) {
+				exportDirectory = args[i + 1];
+			}
+			if (args[i].equals("--checkpoint")) {
+				checkpointFile = args[i + 1];
+			}
+			if (args[i].equals("--restore")) {
+				restoreFile = args[i + 1];
+			}
+			if (args[i].equals("--days") || args[i].equals("--ticks")) {
+				lengthGiven = true;
+			}
+		}
+		try {
+			config = parseArguments(args);
+			for (int i = 0; i + 1 < args.length; i++) {
+				if (args[i].equals("--checkpoint-every")) {
+					checkpointInterval = Integer.parseInt(args[i + 1]);
+					if (checkpointInterval <= 0) {
+						throw new IllegalArgumentException("--checkpoint-every must be positive");
+					}
+				}
+			}
+		} catch(IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			printUsage();
+			System.exit(-1);
+			return;
+		}
+
+		EventLog eventLog = null;
+		CheckpointWriter checkpointWriter = null;
+		try {
+			SimulationEngine engine;
+			if (restoreFile != null) {
+				engine = Checkpoint.restore(new File(restoreFile));
+				if (lengthGiven) {
+					engine.getConfig().setSimulationLength(config.getSimulationLength());
+				}
+				System.out.println("Restored day " + engine.getDay() + " from " + restoreFile);
+			} else {
+				engine = new SimulationEngine(config);
+			}
+			if (checkpointFile != null) {
+				checkpointWriter = new CheckpointWriter(new File(checkpointFile));
+				engine.setCheckpoints(checkpointWriter, checkpointInterval > 0
+						? checkpointInterval : engine.getConfig().getSimulationLength());
+			}
+			if (eventFile != null) {
+				eventLog = new EventLog(new File(eventFile));
+				engine.setEventLog(eventLog);
+			}
+			TickProfiler profiler = new TickProfiler();
+			engine.setProfiler(profiler);
+			SimulationResult result = engine.run();
+			engine.shutdown();
+			if (checkpointWriter != null) {
+				checkpointWriter.close();
+				System.out.println("Checkpoints written: " + checkpointWriter.getWrittenCount()
+						+ ", skipped: " + checkpointWriter.getSkippedCount());
+			}
+			if (eventLog != null) {
+				eventLog.close();
+				System.out.println("Events written: " + eventLog.getCount());
+			}
+			if (exportDirectory != null) {
+				new TableExporter(engine).exportAll(new File(exportDirectory));
+			}
+			result.print(System.out);
+			System.out.println();
+			profiler.print(System.out);
+		} catch(FileNotFoundException e) {
+			System.err.println("File not found: " + e.getMessage());
+			System.exit(-1);
+		} catch(IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(-1);
+		} catch(IOException e) {
+			System.err.println("Could not read or write a file: " + e.getMessage());
+			System.exit(-1);
+		}
+	}
+
+	/**
+	*	Reads the command line arguments into a SimulationConfig
+	*	Settings that are not given keep their default values
+	*	@param args the command line arguments as option/value pairs
+	*	@return config for the headless run
+	*/
+	static SimulationConfig parseArguments(String[] args) {
+		SimulationConfig config = new SimulationConfig();
+		for (int i = 0; i < args.length; i++) {
+			String option = args[i];
+			if (option.equals("--help") || option.equals("-h")) {
+				printUsage();
+				System.exit(0);
+			}
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for " + option);
+			}
+			String value = args[++i];
+			try {
+				switch(option) {
+					case "--agents": config.setAgentNumber(Integer.parseInt(value)); break;
+					case "--stocks": config.setStockNumber(Integer.parseInt(value)); break;
+					case "--days":
+					case "--ticks": config.setSimulationLength(Integer.parseInt(value)); break;
+					case "--seed": config.setSeed(Long.parseLong(value)); break;
+					case "--volatility": config.setVolatility(value); break;
+					case "--threads": config.setParallelism(Integer.parseInt(value)); break;
+					case "--history": config.setHistoryLimit(Integer.parseInt(value)); break;
+					case "--rank": config.setRankingSize(Integer.parseInt(value)); break;
+					case "--universe":
+						if (value.equals("csv")) {
+							config.setUniverseGenerator(null);
+						} else if (value.equals("synthetic")) {
+							syntheticUniverse(config);
+						} else {
+							throw new IllegalArgumentException("Unknown universe " + value);
+						}
+						break;
+					case "--market":
+						if (!value.equals("swap") && !value.equals("orderbook")) {
+							throw new IllegalArgumentException("Unknown market " + value);
+						}
+						config.setOrderBookMarket(value.equals("orderbook"));
+						break;
+					case "--risk-lower": config.setRiskLimits(Integer.parseInt(value), config.getRiskUpperLimit()); break;
+					case "--risk-upper": config.setRiskLimits(config.getRiskLowerLimit(), Integer.parseInt(value)); break;
+					case "--trade-max": config.setTradeMax(Integer.parseInt(value)); break;
+					case "--tick-size": config.setTickSize(Double.parseDouble(value)); break;
+					case "--overcommit":
+						String[] shares = value.split("/");
+						if (shares.length != 3) {
+							throw new IllegalArgumentException("--overcommit takes three percentages, e.g. 33/33/33");
+						}
+						config.setOvercommitSplit(Integer.parseInt(shares[0]), Integer.parseInt(shares[1]), Integer.parseInt(shares[2]));
+						break;
+					case "--companies-csv": config.setCompaniesFile(new File(value)); break;
+					case "--stocks-csv": config.setStocksFile(new File(value)); break;
+					case "--price-history": config.setPriceHistoryFile(new File(value)); break;
+					case "--price-median": syntheticUniverse(config).setPriceMedian(Double.parseDouble(value)); break;
+					case "--price-spread": syntheticUniverse(config).setPriceSpread(Double.parseDouble(value)); break;
+					case "--income-median": syntheticUniverse(config).setIncomeMedian(Double.parseDouble(value)); break;
+					case "--income-spread": syntheticUniverse(config).setIncomeSpread(Double.parseDouble(value)); break;
+					case "--events":
+					case "--export":
+					case "--checkpoint":
+					case "--checkpoint-every":
+					case "--restore": break;
+					default: throw new IllegalArgumentException("Unknown option " + option);
+				}
+			} catch(NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+			}
+		}
+		return config;
+	}
+
+	/**
+	*	@return the config's universe generator, switching the config to a generated universe if needed
+	*/
+	private static UniverseGenerator syntheticUniverse(SimulationConfig config) {
+		if (config.getUniverseGenerator() == null) {
+			config.setUniverseGenerator(new UniverseGenerator());
+		}
+		return config.getUniverseGenerator();
+	}
+
+	static void printUsage() {
+		System.out.println("Usage: java MarketSimulator.Main [options]");
+		System.out.println("Without options the settings window is shown.");
+		System.out.println("  --agents <n>   number of agents");
+		System.out.println("  --stocks <n>   number of stocks");
+		System.out.println("  --days <n>     number of days the simulation runs (alias --ticks)");
+		System.out.println("  --seed <n>     seed for the random number generators");
+		System.out.println("  --volatility <v>  cumulative, rolling:<n> or ewma:<decay>, how the stocks track their volatility");
+		System.out.println("  --threads <n>  threads used to evaluate the agents and settle their trades, 1 by default");
+		System.out.println("  --history <n>  past prices kept per stock, 0 keeps all of them");
+		System.out.println("  --rank <n>     preferred stocks each agent ranks every day, " + SimulationConfig.DEFAULT_RANKING + " by default");
+		System.out.println("  --universe <u>  csv reads the stocks from the CSVs, synthetic generates any number of them");
+		System.out.println("  --risk-lower <n>, --risk-upper <n>  agents' risk and weights are drawn between lower and lower + upper, " + Agent.RISK_LOWER_LIMIT + " and " + Agent.RISK_UPPER_LIMIT + " by default");
+		System.out.println("  --trade-max <n>  stocks traded at a time, " + SimulationEngine.MARKETPLACE_TRADE_MAX + " by default");
+		System.out.println("  --tick-size <p>  least amount a price moves by, " + Stock.TICK_SIZE + " by default");
+		System.out.println("  --overcommit <a/b/c>  percentages of agents in overcommitment tiers 1, 2 and 3");
+		System.out.println("  --companies-csv <f>, --stocks-csv <f>  CSVs the companies and stocks are read from, the ones in CSVs/ by default");
+		System.out.println("  --price-history <f>  CSV of past prices the stocks start with, a line per price: stock number,price");
+		System.out.println("  --price-median <p>, --price-spread <s>    log-normal starting prices of generated stocks");
+		System.out.println("  --income-median <i>, --income-spread <s>  log-normal incomes of generated companies, in billions");
+		System.out.println("  --market <m>   swap trades fixed lots between matching agents, orderbook trades through a limit order book per stock");
+		System.out.println("  --events <f>   write every price update, trade and index value to a binary event log");
+		System.out.println("  --export <d>   write the agent, stock and index tables to CSV and columnar files in a directory");
+		System.out.println("  --checkpoint <f>        save the state of the simulation to a file, at the end of the run by default");
+		System.out.println("  --checkpoint-every <n>  save a checkpoint every n days instead, written in the background");
+		System.out.println("  --restore <f>  continue the simulation saved in a checkpoint, with its settings, --days sets a new length");
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,158 @@
+package MarketSimulator;
+
+/**
+*	MarginAccounts lets the agents in an overcommitment tier buy stocks on margin.
+*
+*	An agent in a tier may borrow against the stocks it holds, up to its tier's share of
+*	their value: 0.4 in tier 1, 0.7 in tier 2 and 0.95 in tier 3. Its cash then goes below
+*	zero, the debt being the loan. Whenever the loan grows beyond the agent's limit, e.g.
+*	because the prices of its stocks fell, the agent is margin called and buys nothing
+*	until its loan is back within the limit, by selling stocks or by prices recovering.
+*	A margin call only stops the agent buying: nothing is sold for it, as the marketplace
+*	has no buyer of last resort, so an agent whose prices keep falling stays called.
+*	Agents in no tier trade as before, only with the cash they have.
+*
+*	Checking a limit needs the value of the agent's stocks, which the AssetLedger of the
+*	agent store keeps up to date, so checking every account for a margin call after the
+*	ledger has been marked to market is a single pass over a few arrays.
+*
+*	@author Alexandros Antoniou
+*/
+public class MarginAccounts {
+
+	public static final int NO_ACCOUNT = -1;
+
+	private AgentStore store;
+	private int[] accountOf;
+	private int[] agentIds;
+	private double[] limits;
+	private AssetLedger ledger;
+	private boolean[] marginCalled;
+	private int marginCallCount;
+
+	/**
+	*	Opens an account for every agent of the store in an overcommitment tier
+	*	@param newStore store holding the agents' cash, tiers and asset ledger
+	*/
+	MarginAccounts(AgentStore newStore) {
+		this.store = newStore;
+		this.ledger = store.getLedger();
+		int agentCount = store.getAgentCount();
+		this.accountOf = new int[agentCount];
+		int count = 0;
+		for (int a = 0; a < agentCount; a++) {
+			accountOf[a] = store.overcommitTier[a] > 0 ? count++ : NO_ACCOUNT;
+		}
+		this.agentIds = new int[count];
+		this.limits = new double[count];
+		this.marginCalled = new boolean[count];
+		for (int a = 0; a < agentCount; a++) {
+			int account = accountOf[a];
+			if (account != NO_ACCOUNT) {
+				agentIds[account] = a;
+				limits[account] = Agent.overcommitLimit(store.overcommitTier[a]);
+			}
+		}
+		checkMarginCalls();
+	}
+
+	/**
+	*	@return number of agents with an account, the agents in an overcommitment tier
+	*/
+	public int getAccountCount() {
+		return this.agentIds.length;
+	}
+
+	/**
+	*	@return whether the agent can pay for a purchase, with its cash and, if it has an
+	*	account and is not margin called, what it may still borrow
+	*/
+	public boolean canBuy(int agentId, double cost) {
+		int account = accountOf[agentId];
+		if (account == NO_ACCOUNT) {
+			return store.cash[agentId] > cost;
+		}
+		return !marginCalled[account] && store.cash[agentId] + limits[account] * ledger.getStockValue(agentId) > cost;
+	}
+
+	/**
+	*	Margin calls the agents whose loan is beyond their limit and releases the ones back
+	*	within it, to be called once the ledger has been marked to market
+	*/
+	void checkMarginCalls() {
+		int calls = 0;
+		for (int account = 0; account < agentIds.length; account++) {
+			double loan = -store.cash[agentIds[account]];
+			marginCalled[account] = loan > limits[account] * ledger.getStockValue(agentIds[account]);
+			if (marginCalled[account]) {
+				calls++;
+			}
+		}
+		this.marginCallCount = calls;
+	}
+
+	/**
+	*	@return whether the agent has an account and is margin called
+	*/
+	public boolean isMarginCalled(int agentId) {
+		int account = accountOf[agentId];
+		return account != NO_ACCOUNT && marginCalled[account];
+	}
+
+	/**
+	*	@return number of agents margin called at the last check
+	*/
+	public int getMarginCallCount() {
+		return this.marginCallCount;
+	}
+
+	/**
+	*	@return number of agents with an account owing money
+	*/
+	public int getBorrowerCount() {
+		int count = 0;
+		for (int account = 0; account < agentIds.length; account++) {
+			if (store.cash[agentIds[account]] < 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	*	@return total loan of every account
+	*/
+	public double getTotalLoan() {
+		double total = 0;
+		for (int account = 0; account < agentIds.length; account++) {
+			total += Math.max(0, -store.cash[agentIds[account]]);
+		}
+		return total;
+	}
+
+	boolean[] getMarginCalled() {
+		return this.marginCalled;
+	}
+
+	/**
+	*	Puts back which agents were margin called when a checkpoint was saved
+	*	@param newMarginCalled whether every account is margin called, in the order of the agent ids
+	*/
+	void restore(boolean[] newMarginCalled) {
+		int calls = 0;
+		for (int account = 0; account < marginCalled.length; account++) {
+			marginCalled[account] = newMarginCalled[account];
+			if (marginCalled[account]) {
+				calls++;
+			}
+		}
+		this.marginCallCount = calls;
+	}
+
+	/**
+	*	@return id of the agent holding an account
+	*/
+	int getAgentId(int account) {
+		return this.agentIds[account];
+	}
+}
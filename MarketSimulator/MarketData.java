@@ -0,0 +1,118 @@
+package MarketSimulator;
+
+import java.util.List;
+
+/**
+*	MarketData is the stage of a simulation day that moves the market itself.
+*
+*	Every stock is bound to its company by position, so a single pass over the stocks
+*	updates the company's market capitalisation, moves the stock price and adds both to
+*	the marketplace indices, without looking companies up by name. The results are kept
+*	in dense arrays indexed by stock id for the stages that follow.
+*
+*	The same pass collects the three factors the agents rank stocks by: volatility,
+*	earnings per stock and price/earnings ratio. They are written straight into the
+*	back one of two MarketSnapshots, which is scaled and swapped to the front at the
+*	end of the pass. Every agent of the day reads the front snapshot instead of the
+*	stocks, while the back one waits to be overwritten by the next update.
+*
+*	Every company lists a single stock, its market capitalisation is calculated from
+*	the price of that stock before it moves, as it has always been.
+*
+*	@author Alexandros Antoniou
+*/
+public class MarketData {
+
+	private Stock[] stocks;
+	private Company[] companies;
+	private double[] marketCaps;
+	private MarketSnapshot front;
+	private MarketSnapshot back;
+	private double priceIndex;
+	private double marketcapIndex;
+
+	/**
+	*	@param universe every stock of the marketplace, the position of a stock in the list must be its id
+	*/
+	MarketData(List<Stock> universe) {
+		int n = universe.size();
+		this.stocks = new Stock[n];
+		this.companies = new Company[n];
+		this.marketCaps = new double[n];
+		this.front = new MarketSnapshot(n);
+		this.back = new MarketSnapshot(n);
+		for (int i = 0; i < n; i++) {
+			stocks[i] = universe.get(i);
+			companies[i] = stocks[i].getStockCompany();
+			front.set(i, stocks[i].getStockPrice(), companies[i].getEarningsPerStock(),
+				stocks[i].getStockVolatility(), stocks[i].calcPERatio());
+		}
+		front.seal(-1);
+	}
+
+	/**
+	*	Updates the market capitalisation of every company, then the price of its stock,
+	*	and sums the new prices and market capitalisations into the two indices
+	*	The values are written into the back snapshot, which becomes the front one at the end of the update
+	*	@param day day of the simulation being run
+	*/
+	void update(int day) {
+		double totalPrice = 0;
+		double totalMarketcap = 0;
+		for (int i = 0; i < stocks.length; i++) {
+			Company c = companies[i];
+			c.calcMarketCap(stocks[i]);
+			stocks[i].updateStockPrice();
+			double price = stocks[i].getStockPrice();
+			double eps = c.getEarningsPerStock();
+			marketCaps[i] = c.getMarketCap();
+			back.set(i, price, eps, stocks[i].getStockVolatility(), price / eps);
+			totalPrice += price;
+			totalMarketcap += marketCaps[i];
+		}
+		this.priceIndex = totalPrice;
+		this.marketcapIndex = totalMarketcap;
+		back.seal(day);
+		MarketSnapshot read = back;
+		this.back = front;
+		this.front = read;
+	}
+
+	public int getStockCount() {
+		return this.stocks.length;
+	}
+
+	public double getPrice(int stockId) {
+		return this.front.getPrice(stockId);
+	}
+
+	public double getMarketCap(int stockId) {
+		return this.marketCaps[stockId];
+	}
+
+	public double getEarningsPerStock(int stockId) {
+		return this.front.getEarningsPerStock(stockId);
+	}
+
+	/**
+	*	@return snapshot filled by the last update, or of the initial market before any update
+	*	It stays unchanged until the next update
+	*/
+	public MarketSnapshot getSnapshot() {
+		return this.front;
+	}
+
+	/**
+	*	@return sum of every stock price after the last update
+	*/
+	public double getPriceIndex() {
+		return this.priceIndex;
+	}
+
+	/**
+	*	@return sum of every company's market capitalisation after the last update
+	*/
+	public double getMarketcapIndex() {
+		return this.marketcapIndex;
+	}
+}
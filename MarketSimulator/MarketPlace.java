@@ -14,7 +14,6 @@ import javax.swing.table.*;
 import org.jfree.chart.*;
 import org.jfree.chart.plot.*;
 import org.jfree.chart.axis.*;
-import org.jfree.data.category.*;
 import org.jfree.ui.*;
 import org.jfree.data.*;
 
@@ -37,25 +36,31 @@ import org.jfree.data.*;
 public class MarketPlace extends JFrame implements ActionListener {
 
 	public final static String TITLE_STRING = "MarketSimulator - 1606172";
-	public static final int MARKETPLACE_TRADE_MAX = 100;
-
-	private static int standardVolume = Integer.MAX_VALUE;
-	private static int agentNumber = 50;
-	private static int stockNumber = 10;
-	private static int initialStockPerAgent = 5;
-	private Random startingCashRandom = new Random(Agent.STANDARD_STARTING_CASH);
-	private Random initialAgentStocks = new Random();
-	private static int simulationLength = 500;
+	public static final int MARKETPLACE_TRADE_MAX = SimulationEngine.MARKETPLACE_TRADE_MAX;
+
+	SimulationEngine engine;
 	ArrayList<Agent> agents;
 	ArrayList<Stock> stocks;
 	ArrayList<Company> companies;
-	HashMap<Stock, Integer> agentStocks;
-	ArrayList<Double> v;
 	ArrayList<Double> index;
 	ArrayList<Double> marketcap;
 
 	ChartPanel stockIndex;
 	ChartPanel marketcapIndex;
+	DownsampledXYDataset indexData;
+	DownsampledXYDataset marketcapData;
+	DefaultTableModel agentModel;
+	StockTableModel stockModel;
+	ProfileTableModel profileModel;
+	JLabel profileCounters;
+	JLabel profileSampling;
+	JLabel title;
+	JLabel high;
+	JLabel low;
+	double indexHigh = Double.NEGATIVE_INFINITY;
+	double indexLow = Double.POSITIVE_INFINITY;
+	SimulationWorker worker;
+	javax.swing.Timer frameTimer;
 
 	JMenuItem makeNewSim;
 	JMenuItem exportGraphs;
@@ -64,28 +69,30 @@ public class MarketPlace extends JFrame implements ActionListener {
 	JMenuItem menuHelp;
 
 	/**
-	*	Initialises list of Companies, Stocks and finally Agents
+	*	Initialises the simulation engine, which creates the Companies, Stocks and finally Agents
+	*	The sliders of the advanced settings can add up to a little over 100 from rounding,
+	*	the last tiers then get what is left
+	*	@param overcommitA percentage of agents in overcommitment tier 1
+	*	@param overcommitB percentage of agents in overcommitment tier 2
+	*	@param overcommitC percentage of agents in overcommitment tier 3
 	*/
-	MarketPlace(int newAgentNumber, int newStockNumber, int newDuration, Set<Integer> overcommitS) {
+	MarketPlace(int newAgentNumber, int newStockNumber, int newDuration, int overcommitA, int overcommitB, int overcommitC) {
 		super("MarketPlace");
-		agentNumber = newAgentNumber;
-		stockNumber = newStockNumber;
-		simulationLength = newDuration;
-		HashMap<ArrayList<Company>, ArrayList<Stock>> map = null;
-		index = new ArrayList<Double>();
-		marketcap = new ArrayList<Double>();
+		SimulationConfig config = new SimulationConfig(newAgentNumber, newStockNumber, newDuration, System.nanoTime());
+		int tier2 = Math.min(overcommitB, 100 - overcommitA);
+		config.setOvercommitSplit(overcommitA, tier2, Math.min(overcommitC, 100 - overcommitA - tier2));
 		try {
-			map = CSVParser.parseCSV(stockNumber);
-		} catch(FileNotFoundException e) {
+			engine = new SimulationEngine(config);
+		} catch(IOException e) {
 			e.printStackTrace();
+			return;
 		}
-		for (Map.Entry<ArrayList<Company>, ArrayList<Stock>> e : map.entrySet()) {
-			companies = (e).getKey();
-			stocks = (e).getValue();
-		}
-
-		initialiseAgents();
-		updateVolume();
+		engine.setProfiler(new TickProfiler());
+		agents = engine.getAgents();
+		stocks = engine.getStocks();
+		companies = engine.getCompanies();
+		index = engine.getIndex();
+		marketcap = engine.getMarketCap();
 
 		updateMarketPlace();
 		// testPrints();
@@ -95,41 +102,6 @@ public class MarketPlace extends JFrame implements ActionListener {
 		return agents;
 	}
 
-	/**
-	*	A random amount of starting cash is calculated, between the two boundaries and
-	*	together with a HashMap<Stock, Integer> object retrieved from giveAgentStocks()
-	*	a number of Agent instances is created and added them to an ArrayList object
-	*/
-	void initialiseAgents() {
-		agents = new ArrayList<Agent>();
-		for (int i = 0; i < agentNumber; i++) {
-			int agentCash = startingCashRandom.nextInt((Agent.UPPER_BOUND_STARTING_CASH - Agent.LOWER_BOUND_STARTING_CASH) + 1) + Agent.LOWER_BOUND_STARTING_CASH;
-			agents.add(new Agent(agentCash, giveAgentStocks()));
-		}
-	}
-
-	/**
-	*	Creates the HashMap that will be used to initialise agent objects with a predetermined amount of stocks
-	*	A random integer decides how many stocks of each Stock an agent will own
-	*	@return agentStocks a HashMap<Stock, Integer> object with stocks and the number of each stock the agent owns
-	*/
-	HashMap<Stock, Integer> giveAgentStocks() {
-		agentStocks = new HashMap<Stock, Integer>();
-		for (int i = 0; i < stocks.size(); i++) {
-			int r = Math.abs(initialAgentStocks.nextInt(1000));
-			agentStocks.put(stocks.get(i), r);
-		}
-		return agentStocks;
-	}
-
-	void updateVolume() {
-		for (Agent a : agents) {
-			for (Map.Entry<Stock, Integer> e : a.getAgentPortfolio().entrySet()) {
-				e.getKey().getStockCompany().updateStockVolume(e.getValue());
-			}
-		}
-	}
-
 	/**
 	*	Iterates through the ArrayList holding the agents and prints to the console their
 	*	- Current Cash
@@ -177,36 +149,58 @@ public class MarketPlace extends JFrame implements ActionListener {
 	}
 
 	/**
-	*	Iterates through the ArrayList holding the stocks and for each stock, updates their stock price
+	*	Shows the window and runs the simulation engine on a worker thread
+	*	The graphs, the stock table and the index labels are updated from the frames the worker
+	*	publishes while the simulation runs, and the agent table is filled in once it is over
 	*/
 	public void updateMarketPlace() {
-		for (int i = 0; i < simulationLength; i++) {
-			for (Stock s : stocks) {
-				for (Company c : companies) {
-					if (s.getStockCompanyName().equals(c.getCompanyName())) {
-						c.calcMarketCap(s);
-					}
-				}
-				s.updateStockPrice();
-			}
-			
-			for (Agent a : agents) {
-				a.calcPortfolioVolatilities();
-				a.calcPortfolioEPS();
-				a.calcPortfolioPE();
-				a.calcStockValue();
-				a.sortStocksByValue();
-			}
-			Collections.shuffle(agents);
-			for (Agent a : agents) {
-				Agent tradeAgent = a.findTradeAgent(agents);
-				a.makeTrade(tradeAgent);
+		createGUI();
+		worker = new SimulationWorker(engine, SimulationWorker.FRAME_INTERVAL);
+		frameTimer = new javax.swing.Timer(SimulationWorker.FRAME_INTERVAL, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				drainFrames();
 			}
+		});
+		frameTimer.start();
+		worker.start();
+	}
 
-			calcIndex();
+	/**
+	*	Takes every frame the worker has published since the last call and draws them
+	*	The index values of every frame are added to the graphs, while the tables and labels
+	*	only show the latest frame
+	*/
+	private void drainFrames() {
+		DashboardFrame latest = null;
+		DashboardFrame frame;
+		while ((frame = worker.getFrames().poll()) != null) {
+			indexData.append(frame.getIndex());
+			marketcapData.append(frame.getMarketCap());
+			for (double value : frame.getIndex()) {
+				indexHigh = Math.max(indexHigh, value);
+				indexLow = Math.min(indexLow, value);
+			}
+			latest = frame;
+		}
+		if (latest == null) {
+			return;
+		}
+		stockModel.setFrame(latest);
+		if (latest.getProfile() != null) {
+			profileModel.setSummary(latest.getProfile());
+			profileSampling.setText(latest.getProfile().getSampling());
+			profileCounters.setText(latest.getProfile().getCounters());
+		}
+		if (indexData.getDayCount() > 0) {
+			title.setText("MarketPlace  "+ String.format("\t%.2f", indexData.getValue(indexData.getDayCount()-1)));
+			high.setText("High: "+String.format("%.2f", indexHigh));
+			low.setText("Low: "+String.format("%.2f", indexLow));
+		}
+		if (latest.isFinished()) {
+			frameTimer.stop();
+			fillAgentTable();
+			exportTables.setEnabled(true);
 		}
-
-		createGUI();
 	}
 
 	void testPrints() {
@@ -223,23 +217,6 @@ public class MarketPlace extends JFrame implements ActionListener {
 		}
 	}
 
-	/**
-	*	Calculates the two marketplace indices by aggregating the values of 
-	*	each stock price and the companies' market capitalisation values
-	*/
-	private void calcIndex() {
-		double totalPrice = 0;
-		double totalmarketcap = 0;
-		for (Stock s : stocks) {
-			totalPrice += s.getStockPrice();
-		}
-		for (Company c : companies) {
-			totalmarketcap += c.getMarketCap();
-		}
-		marketcap.add(totalmarketcap);
-		index.add(totalPrice);
-	}
-
 	/**
 	*	The UI is created in this method
 	*/
@@ -254,8 +231,10 @@ public class MarketPlace extends JFrame implements ActionListener {
 		JMenu menuFile = new JMenu("File");
 		JMenu help = new JMenu("Help");
 		GridLayout tableLayout = new GridLayout(2, 1);
-		stockIndex = createChart("Price Index", index);
-		marketcapIndex = createChart("Market capitalisation Index", marketcap);
+		indexData = new DownsampledXYDataset("Price Index");
+		marketcapData = new DownsampledXYDataset("Market capitalisation Index");
+		stockIndex = createChart("Price Index", indexData);
+		marketcapIndex = createChart("Market capitalisation Index", marketcapData);
 		
 		JPanel generalPanel = new JPanel(tableLayout);
 		JPanel tablePanel = new JPanel(tableLayout);
@@ -265,10 +244,10 @@ public class MarketPlace extends JFrame implements ActionListener {
 		JPanel stockTPanel = new JPanel(); //in tablePanel
 		JScrollPane agentPane = createAgentTable(); //in agentTPanel
 		JScrollPane stockPane = createStockTable(); //in stockTPanel
-		JLabel title = new JLabel(); //in infoPanel
+		title = new JLabel(); //in infoPanel
 		JPanel details = new JPanel(); //in infoPanel
-		JLabel high = new JLabel(); //in details
-		JLabel low = new JLabel(); //in details
+		high = new JLabel(); //in details
+		low = new JLabel(); //in details
 
 		//set up the menu bar
 		menuBar.add(menuFile);
@@ -278,6 +257,7 @@ public class MarketPlace extends JFrame implements ActionListener {
 		makeNewSim = new JMenuItem("New Simulation");
 		exportGraphs = new JMenuItem("Export Graphs");
 		exportTables = new JMenuItem("Export Tables");
+		exportTables.setEnabled(false);
 		exitSim = new JMenuItem("Close");
 		menuHelp = new JMenuItem("About");
 		makeNewSim.addActionListener(this);
@@ -297,11 +277,11 @@ public class MarketPlace extends JFrame implements ActionListener {
 		/*TODO: make 2 menuFile menuItems
 		*/
 		title.setFont(infoFont.deriveFont(36.0f));
-		title.setText("MarketPlace  "+ String.format("\t%.2f", index.get(index.size()-1)));
+		title.setText("MarketPlace");
 		high.setFont(infoFont.deriveFont(24.0f));
-		high.setText("High: "+String.format("%.2f", Collections.max(index)));
+		high.setText("High:");
 		low.setFont(infoFont.deriveFont(24.0f));
-		low.setText("Low: "+String.format("%.2f", Collections.min(index)));
+		low.setText("Low:");
 		infoPanel.add(title);
 		infoPanel.add(details);
 		details.add(high);
@@ -319,6 +299,7 @@ public class MarketPlace extends JFrame implements ActionListener {
 		tablePanel.add(stockTPanel);
 		graphPane.addTab("Price Index", null, stockIndex, "Current market price index");
 		graphPane.addTab("Market Capitalisation", null, marketcapIndex, "Current market capitalisation");
+		graphPane.addTab("Tick Profile", null, createProfilePanel(), "Where the time of every day goes");
 		this.setJMenuBar(menuBar);
 		add(infoPanel, BorderLayout.NORTH);
 		add(graphPane, BorderLayout.WEST);
@@ -330,57 +311,68 @@ public class MarketPlace extends JFrame implements ActionListener {
 
 	/**
 	*	Using the free 3rd party library JFreeChart, the graphs for the indices are made
+	*	The values are plotted through a DownsampledXYDataset, which only passes on as many
+	*	days as the chart is pixels wide and picks them again on zooming and resizing
 	*
 	*	@param title title of the graph
-	*	@param values arraylist of values to be plotted
+	*	@param dataset the days of the index, appended to while the simulation runs
 	*	@return chartpanel containing the graph
 	*/
-	private ChartPanel createChart(String title, ArrayList<Double> values) {
-		v = values;
-		JFreeChart chart = ChartFactory.createLineChart(title, 
+	private ChartPanel createChart(String title, final DownsampledXYDataset dataset) {
+		JFreeChart chart = ChartFactory.createXYLineChart(title, 
 			"iterations", 
 			"USD", 
-			createDataset(), 
+			dataset, 
 			PlotOrientation.VERTICAL, 
 			false, 
 			false, 
 			false);
-		CategoryPlot plot = (CategoryPlot)chart.getPlot();
-		CategoryAxis domain = plot.getDomainAxis();
+		XYPlot plot = chart.getXYPlot();
+		ValueAxis domain = plot.getDomainAxis();
 		domain.setVisible(true);
 		domain.setTickLabelsVisible(false);
+		domain.addChangeListener(dataset);
 		NumberAxis range = (NumberAxis)plot.getRangeAxis();
 		range.setVisible(true);
 		range.setAutoRangeIncludesZero(false);
 		if (title.equals("Market capitalisation Index")) {
 			range.setLabel("USD in billions");	
 		}
-		ChartPanel cp = new ChartPanel(chart);
+		final ChartPanel cp = new ChartPanel(chart);
 		cp.setPreferredSize(new Dimension(600, 400));
+		cp.addComponentListener(new ComponentAdapter() {
+			public void componentResized(ComponentEvent e) {
+				dataset.setWidth(cp.getWidth());
+			}
+		});
 		return cp;
 	}
 
-	/**
-	*	@return defaultcategorydataset to be used in the graph
-	*/
-	private DefaultCategoryDataset createDataset() {
-		DefaultCategoryDataset ds = new DefaultCategoryDataset();
-		for (int i=0; i<v.size(); i++) {
-			ds.addValue(v.get(i), "Value1", i+"");
-		}
-		return ds;
-	}
-
 	/**
 	*	Tables are created through the standard library using the JTable module
+	*	The agents are only added once the simulation is over, see fillAgentTable
 	*	@return JScrollPane containing the table for agent info
 	*/
 	private JScrollPane createAgentTable() {
-		DefaultTableModel model = new DefaultTableModel();
-		String[] columns = {"AgentID", "Cash", "Assets", "Vol Risk", "EPS Risk", "PE Risk"};
+		agentModel = new DefaultTableModel();
+		String[] columns = {"AgentID", "Cash", "Assets", "Vol Risk", "EPS Risk", "PE Risk", "Margin"};
 		for (String s : columns) {
-			model.addColumn(s);
+			agentModel.addColumn(s);
 		}
+		JTable agentTable = new JTable(agentModel);
+		agentTable.getColumnModel().getColumn(0).setPreferredWidth(120);
+		JScrollPane tablePane = new JScrollPane(agentTable);
+		agentTable.setPreferredScrollableViewportSize(new Dimension(463, 150));
+
+		return tablePane;
+	}
+
+	/**
+	*	Adds a row for every agent to the agent table
+	*	Only called once the worker has finished, as the agents change every day until then
+	*/
+	private void fillAgentTable() {
+		Vector<Vector<Object>> rows = new Vector<Vector<Object>>(agents.size());
 		for (Agent a : agents) {
 			Vector<Object> row = new Vector<Object>();
 			String id = a.toString().split("@")[1];
@@ -390,41 +382,28 @@ public class MarketPlace extends JFrame implements ActionListener {
 			row.add(a.getRisk());
 			row.add(a.getEPS());
 			row.add(a.getPE());
-			model.addRow(row);
+			if (a.getOvercommitTier() == 0) {
+				row.add("-");
+			} else {
+				row.add(String.format("%.2f", a.getOvercommitTier()) + (a.isMarginCalled() ? " called" : ""));
+			}
+			rows.add(row);
 		}
-		JTable agentTable = new JTable(model);
-		agentTable.getColumnModel().getColumn(0).setPreferredWidth(120);
-		JScrollPane tablePane = new JScrollPane(agentTable);
-		agentTable.setPreferredScrollableViewportSize(new Dimension(463, 150));
-
-		return tablePane;
+		Vector<Object> columns = new Vector<Object>();
+		for (int i = 0; i < agentModel.getColumnCount(); i++) {
+			columns.add(agentModel.getColumnName(i));
+		}
+		agentModel.setDataVector(rows, columns);
 	}
 
 	/**
 	*	Tables are created through the standard library using the JTable module
+	*	The rows are filled from the latest frame of the running simulation
 	*	@return JScrollPane containing the table for stock info
 	*/
 	private JScrollPane createStockTable() {
-		DefaultTableModel model = new DefaultTableModel();
-		String[] columns = {"Stock", "Price", "Company", "Price Change", "Volatility", "Volume"};
-		for (String s : columns) {
-			model.addColumn(s);
-		}
-		for (Stock s : stocks) {
-			Vector<Object> row = new Vector<Object>();
-			row.add(s.getStockName());
-			row.add(String.format("%.2f", s.getStockPrice()));
-			row.add(s.getStockCompanyName());
-			if (s.getStockPriceChange() > 0) {
-				row.add(String.format("+%.4f%%", s.getStockPriceChange()/s.getStockPrice()*100));
-			} else {
-				row.add(String.format("%.4f%%", s.getStockPriceChange()/s.getStockPrice()*100));
-			}
-			row.add(String.format("%.4f", s.calcVolatility()));
-			row.add(String.format("%d", s.getStockCompany().getVolume()));
-			model.addRow(row);
-		}
-		JTable stockTable = new JTable(model);
+		stockModel = new StockTableModel(stocks);
+		JTable stockTable = new JTable(stockModel);
 		stockTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
 		JScrollPane tablePane = new JScrollPane(stockTable);
 		stockTable.setPreferredScrollableViewportSize(new Dimension(463, 150));
@@ -432,6 +411,124 @@ public class MarketPlace extends JFrame implements ActionListener {
 		return tablePane;
 	}
 
+	/**
+	*	The profile panel shows the timings of every phase of a day in a table, with the
+	*	trade and allocation counters below it, as of the latest frame
+	*	@return JPanel containing the profile table and counters
+	*/
+	private JPanel createProfilePanel() {
+		profileModel = new ProfileTableModel();
+		JTable profileTable = new JTable(profileModel);
+		profileTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
+		profileTable.getColumnModel().getColumn(0).setPreferredWidth(120);
+		profileSampling = new JLabel(" ");
+		profileCounters = new JLabel(" ");
+		JPanel counters = new JPanel(new GridLayout(2, 1));
+		counters.add(profileSampling);
+		counters.add(profileCounters);
+		JPanel profilePanel = new JPanel(new BorderLayout());
+		profilePanel.add(new JScrollPane(profileTable), BorderLayout.CENTER);
+		profilePanel.add(counters, BorderLayout.SOUTH);
+		return profilePanel;
+	}
+
+	/**
+	*	Table model showing the timings of every phase of a day, in microseconds, from the
+	*	profile summary of a frame
+	*/
+	static class ProfileTableModel extends AbstractTableModel {
+		private static final String[] COLUMNS = {"Phase", "Days", "Mean (us)", "p50 (us)", "p99 (us)", "Max (us)", "Share"};
+
+		private TickProfiler.Summary summary;
+
+		void setSummary(TickProfiler.Summary newSummary) {
+			summary = newSummary;
+			fireTableRowsUpdated(0, TickProfiler.PHASES.length - 1);
+		}
+
+		public int getRowCount() {
+			return TickProfiler.PHASES.length;
+		}
+
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		public String getColumnName(int column) {
+			return COLUMNS[column];
+		}
+
+		public Object getValueAt(int row, int column) {
+			if (column == 0) {
+				return TickProfiler.PHASES[row];
+			}
+			if (summary == null) {
+				return "";
+			}
+			switch(column) {
+				case 1: return String.format("%d", summary.getCount(row));
+				case 2: return String.format("%.1f", summary.getMean(row));
+				case 3: return String.format("%.1f", summary.getMedian(row));
+				case 4: return String.format("%.1f", summary.getP99(row));
+				case 5: return String.format("%.1f", summary.getMax(row));
+				default: return String.format("%.1f%%", summary.getShare(row));
+			}
+		}
+	}
+
+	/**
+	*	Table model showing every stock as it was in a frame of the running simulation
+	*	The names never change, so they are read from the stocks, everything else from the frame
+	*/
+	static class StockTableModel extends AbstractTableModel {
+		private static final String[] COLUMNS = {"Stock", "Price", "Company", "Price Change", "Volatility", "Volume"};
+
+		private ArrayList<Stock> stocks;
+		private DashboardFrame frame;
+
+		StockTableModel(ArrayList<Stock> newStocks) {
+			this.stocks = newStocks;
+		}
+
+		void setFrame(DashboardFrame newFrame) {
+			frame = newFrame;
+			fireTableRowsUpdated(0, stocks.size() - 1);
+		}
+
+		public int getRowCount() {
+			return stocks.size();
+		}
+
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		public String getColumnName(int column) {
+			return COLUMNS[column];
+		}
+
+		public Object getValueAt(int row, int column) {
+			Stock s = stocks.get(row);
+			if (column == 0) {
+				return s.getStockName();
+			}
+			if (column == 2) {
+				return s.getStockCompanyName();
+			}
+			if (frame == null) {
+				return "";
+			}
+			double price = frame.getStockPrice(row);
+			double change = frame.getStockPriceChange(row);
+			switch(column) {
+				case 1: return String.format("%.2f", price);
+				case 3: return String.format(change > 0 ? "+%.4f%%" : "%.4f%%", change/price*100);
+				case 4: return String.format("%.4f", frame.getStockVolatility(row));
+				default: return String.format("%d", frame.getStockVolume(row));
+			}
+		}
+	}
+
 	public Font getFont(String name) throws FontFormatException, IOException {
 		String fontPath = "font/sulphur-point/"+name;
 		return Font.createFont(Font.TRUETYPE_FONT, new File(fontPath));
@@ -453,6 +550,10 @@ public class MarketPlace extends JFrame implements ActionListener {
 	public void actionPerformed(ActionEvent ev) {
 		JMenuItem src = (JMenuItem)ev.getSource();
 		if (src==makeNewSim) {
+			if (worker != null) {
+				worker.cancel();
+				frameTimer.stop();
+			}
 			this.dispose();
 			new SimulationSettings();
 		}
@@ -464,7 +565,11 @@ public class MarketPlace extends JFrame implements ActionListener {
 			}
 		}
 		if (src==exportTables) {
-
+			try {
+				new TableExporter(engine).exportAll(new File("."));
+			} catch (IOException e) {
+				System.out.println("Could not export tables: "+e);
+			}
 		}
 		if (src==exitSim) {
 			System.exit(0);
@@ -0,0 +1,154 @@
+package MarketSimulator;
+
+/**
+*	MarketSnapshot is a read-only view of the market at the end of the market stage of a day.
+*
+*	It holds, by stock id, the values every agent reads when valuing its stocks:
+*	- the price of the stock
+*	- the earnings per stock of its company
+*	- the volatility of the stock
+*	- the price/earnings ratio of the stock
+*	and the three factors scaled to the 1 - 1000 range against the other stocks.
+*
+*	These are the same for every agent, so they are computed once per day when the
+*	snapshot is filled instead of once per agent. MarketData keeps two snapshots and
+*	fills the one the agents are not reading, then swaps them, so the arrays are
+*	allocated once for the whole run. Agents only see the getters, and the snapshot
+*	they are handed does not change until the next market update, which lets the agents
+*	be evaluated on several threads at once without seeing the stocks half way through
+*	an update.
+*
+*	@author Alexandros Antoniou
+*/
+public final class MarketSnapshot {
+
+	private int day;
+	private final double[] prices;
+	private final double[] earningsPerStock;
+	private final double[] volatilities;
+	private final double[] peRatios;
+	private final double[] volatilityFactor;
+	private final double[] epsFactor;
+	private final double[] peFactor;
+
+	/**
+	*	Allocates an empty snapshot, the values are written by MarketData before it is read
+	*	@param stockCount number of stocks in the market
+	*/
+	MarketSnapshot(int stockCount) {
+		this.day = -1;
+		this.prices = new double[stockCount];
+		this.earningsPerStock = new double[stockCount];
+		this.volatilities = new double[stockCount];
+		this.peRatios = new double[stockCount];
+		this.volatilityFactor = new double[stockCount];
+		this.epsFactor = new double[stockCount];
+		this.peFactor = new double[stockCount];
+	}
+
+	/**
+	*	Writes the raw values of a stock, the factors are scaled once every stock is written
+	*	@param stockId id of the stock
+	*	@param price price of the stock
+	*	@param eps earnings per stock of the stock's company
+	*	@param volatility volatility of the stock
+	*	@param peRatio price/earnings ratio of the stock
+	*/
+	void set(int stockId, double price, double eps, double volatility, double peRatio) {
+		prices[stockId] = price;
+		earningsPerStock[stockId] = eps;
+		volatilities[stockId] = volatility;
+		peRatios[stockId] = peRatio;
+	}
+
+	/**
+	*	Scales the three factors of every stock written since the last seal
+	*	@param newDay day of the simulation the values belong to, -1 for the market before the first day
+	*/
+	void seal(int newDay) {
+		this.day = newDay;
+		normaliseFactors();
+	}
+
+	/**
+	*	Scales the volatility, EPS and PE of every stock from the range of their values to 1 - 1000
+	*	The minimum and maximum of all three factors are found in one sweep and the three
+	*	scaled factors are written in a second one
+	*	A maximum volatility of 0, before any price has moved, is replaced by 1
+	*/
+	private void normaliseFactors() {
+		int n = prices.length;
+		if (n == 0) {
+			return;
+		}
+		double volMin = volatilities[0];
+		double volMax = volatilities[0];
+		double epsMin = earningsPerStock[0];
+		double epsMax = earningsPerStock[0];
+		double peMin = peRatios[0];
+		double peMax = peRatios[0];
+		for (int i = 1; i < n; i++) {
+			volMin = Math.min(volMin, volatilities[i]);
+			volMax = Math.max(volMax, volatilities[i]);
+			epsMin = Math.min(epsMin, earningsPerStock[i]);
+			epsMax = Math.max(epsMax, earningsPerStock[i]);
+			peMin = Math.min(peMin, peRatios[i]);
+			peMax = Math.max(peMax, peRatios[i]);
+		}
+		if (volMax == 0.0) {
+			volMax = 1;
+		}
+		double aNorm = 1;
+		double bNorm = 1000;
+		for (int i = 0; i < n; i++) {
+			volatilityFactor[i] = aNorm + (volatilities[i] - volMin)*(bNorm - aNorm)/(volMax - volMin);
+			epsFactor[i] = aNorm + (earningsPerStock[i] - epsMin)*(bNorm - aNorm)/(epsMax - epsMin);
+			peFactor[i] = aNorm + (peRatios[i] - peMin)*(bNorm - aNorm)/(peMax - peMin);
+		}
+	}
+
+	public int getDay() {
+		return this.day;
+	}
+
+	public int getStockCount() {
+		return this.prices.length;
+	}
+
+	public double getPrice(int stockId) {
+		return this.prices[stockId];
+	}
+
+	public double getEarningsPerStock(int stockId) {
+		return this.earningsPerStock[stockId];
+	}
+
+	public double getVolatility(int stockId) {
+		return this.volatilities[stockId];
+	}
+
+	public double getPERatio(int stockId) {
+		return this.peRatios[stockId];
+	}
+
+	/**
+	*	@return volatility of the stock scaled to 1 - 1000 against the other stocks
+	*/
+	public double getVolatilityFactor(int stockId) {
+		return this.volatilityFactor[stockId];
+	}
+
+	/**
+	*	@return earnings per stock of the stock's company scaled to 1 - 1000 against the other stocks
+	*/
+	public double getEPSFactor(int stockId) {
+		return this.epsFactor[stockId];
+	}
+
+	/**
+	*	@return price/earnings ratio of the stock scaled to 1 - 1000 against the other stocks
+	*/
+	public double getPEFactor(int stockId) {
+		return this.peFactor[stockId];
+	}
+}
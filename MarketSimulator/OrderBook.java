@@ -0,0 +1,467 @@
+package MarketSimulator;
+
+import java.util.Arrays;
+
+/**
+*	OrderBook is a continuous double auction limit order book for a single stock.
+*
+*	Orders are matched with price-time priority: an incoming order trades against the best
+*	opposite price first and, within a price, against the oldest order first. Whatever is
+*	left of it rests in the book at its limit price.
+*
+*	Prices are whole numbers of ticks. The price levels are kept in primitive arrays indexed
+*	by tick from the bottom of a window of prices, which grows when an order falls outside it.
+*	The orders of a level form a doubly linked FIFO queue threaded through a pool of orders,
+*	also kept in primitive arrays, whose free slots are reused. Adding, cancelling and filling
+*	an order is therefore a constant number of array operations with no allocation, apart from
+*	moving the best price past levels that have emptied and growing the arrays.
+*
+*	Every trade is reported to the book's TradeListener with the buyer and seller ids given
+*	when the orders were added and the price of the resting order.
+*
+*	@author Alexandros Antoniou
+*/
+public class OrderBook {
+
+	public static final int NO_PRICE = -1;
+	public static final int NO_ORDER = -1;
+	public static final int INITIAL_LEVELS = 1024;
+	public static final int INITIAL_ORDERS = 256;
+
+	private static final byte FREE = 0;
+	private static final byte BUY = 1;
+	private static final byte SELL = 2;
+
+	/**
+	*	Receives the trades of an order book
+	*/
+	public interface TradeListener {
+		/**
+		*	@param stockId id of the book's stock
+		*	@param buyer id given with the buy order
+		*	@param seller id given with the sell order
+		*	@param priceTick price of the trade in ticks
+		*	@param quantity number of stocks traded
+		*/
+		void trade(int stockId, int buyer, int seller, int priceTick, int quantity);
+	}
+
+	private int stockId;
+	private TradeListener listener;
+
+	// price levels, indexed by tick - baseTick
+	private int baseTick;
+	private int[] bidHead;
+	private int[] bidTail;
+	private int[] askHead;
+	private int[] askTail;
+	private long[] bidVolume;
+	private long[] askVolume;
+	private int bestBid = NO_PRICE;
+	private int bestAsk = NO_PRICE;
+	private int bidOrders;
+	private int askOrders;
+	private int lowestUsed = Integer.MAX_VALUE;
+	private int highestUsed = Integer.MIN_VALUE;
+
+	// order pool, indexed by order handle
+	private byte[] orderSide;
+	private int[] orderOwner;
+	private int[] orderQuantity;
+	private int[] orderTick;
+	private int[] orderNext;
+	private int[] orderPrev;
+	private int freeOrder = NO_ORDER;
+	private int poolSize;
+
+	private double tickSize;
+	private int lastTradeTick = NO_PRICE;
+	private long tradedVolume;
+	private int submittedOrders;
+
+	/**
+	*	@param newStockId id of the stock the book trades, passed on to the listener
+	*/
+	OrderBook(int newStockId) {
+		this(newStockId, Stock.TICK_SIZE);
+	}
+
+	/**
+	*	@param newStockId id of the stock the book trades, passed on to the listener
+	*	@param newTickSize price of a tick of the book
+	*/
+	OrderBook(int newStockId, double newTickSize) {
+		this.stockId = newStockId;
+		this.tickSize = newTickSize;
+		this.bidHead = newLevels(INITIAL_LEVELS);
+		this.bidTail = newLevels(INITIAL_LEVELS);
+		this.askHead = newLevels(INITIAL_LEVELS);
+		this.askTail = newLevels(INITIAL_LEVELS);
+		this.bidVolume = new long[INITIAL_LEVELS];
+		this.askVolume = new long[INITIAL_LEVELS];
+		this.orderSide = new byte[INITIAL_ORDERS];
+		this.orderOwner = new int[INITIAL_ORDERS];
+		this.orderQuantity = new int[INITIAL_ORDERS];
+		this.orderTick = new int[INITIAL_ORDERS];
+		this.orderNext = new int[INITIAL_ORDERS];
+		this.orderPrev = new int[INITIAL_ORDERS];
+	}
+
+	private static int[] newLevels(int size) {
+		int[] levels = new int[size];
+		Arrays.fill(levels, NO_ORDER);
+		return levels;
+	}
+
+	public void setTradeListener(TradeListener newListener) {
+		this.listener = newListener;
+	}
+
+	public int getStockId() {
+		return this.stockId;
+	}
+
+	/**
+	*	@param price a price
+	*	@return the price in whole ticks, at least 1
+	*/
+	public int toTick(double price) {
+		return (int)Math.max(1, Math.round(price / tickSize));
+	}
+
+	public double toPrice(int tick) {
+		return tick * tickSize;
+	}
+
+	/**
+	*	Adds a buy order, matching it against the asks at or below its limit first
+	*	@param owner id reported to the listener as the buyer
+	*	@param limitTick highest price the buyer pays, in ticks
+	*	@param quantity number of stocks to buy
+	*	@return handle of the order resting in the book, or NO_ORDER if it was filled completely
+	*/
+	public int buy(int owner, int limitTick, int quantity) {
+		submittedOrders++;
+		while (quantity > 0 && bestAsk != NO_PRICE && bestAsk <= limitTick) {
+			quantity -= fill(askHead, bestAsk, owner, quantity, false);
+		}
+		if (quantity == 0) {
+			return NO_ORDER;
+		}
+		return rest(BUY, owner, limitTick, quantity);
+	}
+
+	/**
+	*	Adds a sell order, matching it against the bids at or above its limit first
+	*	@param owner id reported to the listener as the seller
+	*	@param limitTick lowest price the seller accepts, in ticks
+	*	@param quantity number of stocks to sell
+	*	@return handle of the order resting in the book, or NO_ORDER if it was filled completely
+	*/
+	public int sell(int owner, int limitTick, int quantity) {
+		submittedOrders++;
+		while (quantity > 0 && bestBid != NO_PRICE && bestBid >= limitTick) {
+			quantity -= fill(bidHead, bestBid, owner, quantity, true);
+		}
+		if (quantity == 0) {
+			return NO_ORDER;
+		}
+		return rest(SELL, owner, limitTick, quantity);
+	}
+
+	/**
+	*	Fills the oldest order of a level against an incoming order
+	*	@return number of stocks traded
+	*/
+	private int fill(int[] heads, int tick, int owner, int quantity, boolean restingBuy) {
+		int order = heads[tick - baseTick];
+		int traded = Math.min(quantity, orderQuantity[order]);
+		orderQuantity[order] -= traded;
+		if (restingBuy) {
+			bidVolume[tick - baseTick] -= traded;
+		} else {
+			askVolume[tick - baseTick] -= traded;
+		}
+		int resting = orderOwner[order];
+		if (orderQuantity[order] == 0) {
+			remove(order);
+		}
+		lastTradeTick = tick;
+		tradedVolume += traded;
+		if (listener != null) {
+			if (restingBuy) {
+				listener.trade(stockId, resting, owner, tick, traded);
+			} else {
+				listener.trade(stockId, owner, resting, tick, traded);
+			}
+		}
+		return traded;
+	}
+
+	/**
+	*	Appends an order to the queue of its price level
+	*/
+	private int rest(byte side, int owner, int tick, int quantity) {
+		tick = Math.max(1, tick);
+		ensureLevel(tick);
+		int order = allocateOrder();
+		int level = tick - baseTick;
+		orderSide[order] = side;
+		orderOwner[order] = owner;
+		orderQuantity[order] = quantity;
+		orderTick[order] = tick;
+		orderNext[order] = NO_ORDER;
+		int[] heads = side == BUY ? bidHead : askHead;
+		int[] tails = side == BUY ? bidTail : askTail;
+		int tail = tails[level];
+		orderPrev[order] = tail;
+		if (tail == NO_ORDER) {
+			heads[level] = order;
+		} else {
+			orderNext[tail] = order;
+		}
+		tails[level] = order;
+		if (side == BUY) {
+			bidVolume[level] += quantity;
+			bidOrders++;
+			if (bestBid == NO_PRICE || tick > bestBid) {
+				bestBid = tick;
+			}
+		} else {
+			askVolume[level] += quantity;
+			askOrders++;
+			if (bestAsk == NO_PRICE || tick < bestAsk) {
+				bestAsk = tick;
+			}
+		}
+		lowestUsed = Math.min(lowestUsed, level);
+		highestUsed = Math.max(highestUsed, level);
+		return order;
+	}
+
+	/**
+	*	Cancels a resting order
+	*	A handle is only valid until its order is filled or cancelled, or the book is cleared,
+	*	after which it may be given to a new order
+	*	@param order handle returned when the order was added
+	*	@return whether the order was resting in the book
+	*/
+	public boolean cancel(int order) {
+		if (order < 0 || order >= poolSize || orderSide[order] == FREE) {
+			return false;
+		}
+		int level = orderTick[order] - baseTick;
+		if (orderSide[order] == BUY) {
+			bidVolume[level] -= orderQuantity[order];
+		} else {
+			askVolume[level] -= orderQuantity[order];
+		}
+		remove(order);
+		return true;
+	}
+
+	/**
+	*	Unlinks an order from its level, returns it to the pool and moves the best price on
+	*	if its level emptied
+	*/
+	private void remove(int order) {
+		int level = orderTick[order] - baseTick;
+		boolean buy = orderSide[order] == BUY;
+		int[] heads = buy ? bidHead : askHead;
+		int[] tails = buy ? bidTail : askTail;
+		int prev = orderPrev[order];
+		int next = orderNext[order];
+		if (prev == NO_ORDER) {
+			heads[level] = next;
+		} else {
+			orderNext[prev] = next;
+		}
+		if (next == NO_ORDER) {
+			tails[level] = prev;
+		} else {
+			orderPrev[next] = prev;
+		}
+		orderSide[order] = FREE;
+		orderNext[order] = freeOrder;
+		freeOrder = order;
+		if (buy) {
+			bidOrders--;
+			if (heads[level] == NO_ORDER && orderTick[order] == bestBid) {
+				bestBid = bidOrders == 0 ? NO_PRICE : nextLevel(bidHead, level, -1);
+			}
+		} else {
+			askOrders--;
+			if (heads[level] == NO_ORDER && orderTick[order] == bestAsk) {
+				bestAsk = askOrders == 0 ? NO_PRICE : nextLevel(askHead, level, 1);
+			}
+		}
+	}
+
+	/**
+	*	@return tick of the first non-empty level after the given one in the given direction
+	*/
+	private int nextLevel(int[] heads, int level, int step) {
+		do {
+			level += step;
+		} while (heads[level] == NO_ORDER);
+		return level + baseTick;
+	}
+
+	private int allocateOrder() {
+		if (freeOrder != NO_ORDER) {
+			int order = freeOrder;
+			freeOrder = orderNext[order];
+			return order;
+		}
+		if (poolSize == orderSide.length) {
+			int size = poolSize * 2;
+			orderSide = Arrays.copyOf(orderSide, size);
+			orderOwner = Arrays.copyOf(orderOwner, size);
+			orderQuantity = Arrays.copyOf(orderQuantity, size);
+			orderTick = Arrays.copyOf(orderTick, size);
+			orderNext = Arrays.copyOf(orderNext, size);
+			orderPrev = Arrays.copyOf(orderPrev, size);
+		}
+		return poolSize++;
+	}
+
+	/**
+	*	Makes sure a tick falls inside the window of price levels
+	*	An empty book moves its window to the tick, otherwise the window grows to take it in
+	*/
+	private void ensureLevel(int tick) {
+		int levels = bidHead.length;
+		if (tick >= baseTick && tick < baseTick + levels) {
+			return;
+		}
+		if (bidOrders == 0 && askOrders == 0) {
+			clearLevels();
+			baseTick = Math.max(0, tick - levels / 2);
+			return;
+		}
+		int low = Math.min(baseTick, tick);
+		int high = Math.max(baseTick + levels, tick + 1);
+		int size = levels;
+		while (size < (high - low) * 2L && size < Integer.MAX_VALUE / 2) {
+			size *= 2;
+		}
+		int newBase = Math.max(0, low - (size - (high - low)) / 2);
+		int shift = baseTick - newBase;
+		bidHead = moveLevels(bidHead, size, shift);
+		bidTail = moveLevels(bidTail, size, shift);
+		askHead = moveLevels(askHead, size, shift);
+		askTail = moveLevels(askTail, size, shift);
+		long[] volumes = new long[size];
+		System.arraycopy(bidVolume, 0, volumes, shift, levels);
+		bidVolume = volumes;
+		volumes = new long[size];
+		System.arraycopy(askVolume, 0, volumes, shift, levels);
+		askVolume = volumes;
+		lowestUsed += shift;
+		highestUsed += shift;
+		baseTick = newBase;
+	}
+
+	private static int[] moveLevels(int[] levels, int size, int shift) {
+		int[] moved = newLevels(size);
+		System.arraycopy(levels, 0, moved, shift, levels.length);
+		return moved;
+	}
+
+	private void clearLevels() {
+		if (lowestUsed <= highestUsed) {
+			Arrays.fill(bidHead, lowestUsed, highestUsed + 1, NO_ORDER);
+			Arrays.fill(bidTail, lowestUsed, highestUsed + 1, NO_ORDER);
+			Arrays.fill(askHead, lowestUsed, highestUsed + 1, NO_ORDER);
+			Arrays.fill(askTail, lowestUsed, highestUsed + 1, NO_ORDER);
+			Arrays.fill(bidVolume, lowestUsed, highestUsed + 1, 0);
+			Arrays.fill(askVolume, lowestUsed, highestUsed + 1, 0);
+		}
+		lowestUsed = Integer.MAX_VALUE;
+		highestUsed = Integer.MIN_VALUE;
+	}
+
+	/**
+	*	Cancels every resting order, e.g. at the end of a day
+	*	The time taken depends on the range of prices used, not on the number of orders
+	*/
+	public void clear() {
+		clearLevels();
+		Arrays.fill(orderSide, 0, poolSize, FREE);
+		poolSize = 0;
+		freeOrder = NO_ORDER;
+		bidOrders = 0;
+		askOrders = 0;
+		bestBid = NO_PRICE;
+		bestAsk = NO_PRICE;
+	}
+
+	/**
+	*	@return highest price of the resting buy orders in ticks, or NO_PRICE
+	*/
+	public int getBestBid() {
+		return this.bestBid;
+	}
+
+	/**
+	*	@return lowest price of the resting sell orders in ticks, or NO_PRICE
+	*/
+	public int getBestAsk() {
+		return this.bestAsk;
+	}
+
+	/**
+	*	@param tick price in ticks
+	*	@return number of stocks resting on the buy side at that price
+	*/
+	public long getBidVolume(int tick) {
+		int level = tick - baseTick;
+		return level >= 0 && level < bidVolume.length ? bidVolume[level] : 0;
+	}
+
+	/**
+	*	@param tick price in ticks
+	*	@return number of stocks resting on the sell side at that price
+	*/
+	public long getAskVolume(int tick) {
+		int level = tick - baseTick;
+		return level >= 0 && level < askVolume.length ? askVolume[level] : 0;
+	}
+
+	/**
+	*	@return number of orders resting in the book
+	*/
+	public int getOrderCount() {
+		return bidOrders + askOrders;
+	}
+
+	/**
+	*	@return price of the last trade in ticks, or NO_PRICE if nothing traded since the last reset
+	*/
+	public int getLastTradeTick() {
+		return this.lastTradeTick;
+	}
+
+	/**
+	*	@return number of stocks traded since the last reset
+	*/
+	public long getTradedVolume() {
+		return this.tradedVolume;
+	}
+
+	/**
+	*	@return number of buy and sell orders added since the last reset
+	*/
+	public int getSubmittedOrders() {
+		return this.submittedOrders;
+	}
+
+	/**
+	*	Forgets the last trade price, the traded volume and the number of orders added
+	*/
+	public void resetTrades() {
+		this.lastTradeTick = NO_PRICE;
+		this.tradedVolume = 0;
+		this.submittedOrders = 0;
+	}
+}
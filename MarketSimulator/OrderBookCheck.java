@@ -0,0 +1,255 @@
+package MarketSimulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+*	The OrderBookCheck class cross-checks OrderBook against a naive reference model.
+*
+*	The model keeps the resting orders in a plain list and matches an incoming order by
+*	scanning the whole list for the best opposite price, the oldest order first within a
+*	price. Both are fed the same random stream of events, buy and sell orders around a
+*	price, the odd order far from it so the book's window of prices has to grow,
+*	cancellations of orders added earlier, some of them already filled or cancelled, and
+*	clearing the book. After every event the trades reported to the listener, the handle
+*	returned, the best prices, the volume at the best prices, the number of resting orders
+*	and the trade counters of the book must match the model, e.g.
+*
+*	java MarketSimulator.OrderBookCheck --seed 1 --rounds 200 --events 5000
+*
+*	The first mismatch is printed and the check exits with -1.
+*
+*	@author Alexandros Antoniou
+*/
+public class OrderBookCheck implements OrderBook.TradeListener {
+
+	public static final int CENTRE_TICK = 100;
+	public static final int SPREAD_TICKS = 40;
+	public static final int FAR_TICKS = 5000;
+	public static final int MAX_QUANTITY = 50;
+	public static final int HANDLES = 64;
+
+	private RandomSource random;
+	private OrderBook book;
+	private ArrayList<ModelOrder> resting = new ArrayList<ModelOrder>();
+	private Map<Integer, ModelOrder> byHandle = new HashMap<Integer, ModelOrder>();
+	private ArrayList<int[]> bookTrades = new ArrayList<int[]>();
+	private ArrayList<int[]> modelTrades = new ArrayList<int[]>();
+	private int[] handles = new int[HANDLES];
+	private long sequence;
+	private int lastTradeTick = OrderBook.NO_PRICE;
+	private long tradedVolume;
+	private int submittedOrders;
+
+	OrderBookCheck(long seed) {
+		this.random = new RandomSource(seed);
+	}
+
+	public static void main(String[] args) {
+		long seed = 1;
+		int rounds = 200;
+		int events = 5000;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+				case "--seed": seed = Long.parseLong(value); break;
+				case "--rounds": rounds = Integer.parseInt(value); break;
+				case "--events": events = Integer.parseInt(value); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		OrderBookCheck check = new OrderBookCheck(seed);
+		for (int round = 0; round < rounds; round++) {
+			String mismatch = check.runRound(events);
+			if (mismatch != null) {
+				System.err.println("Round " + round + ": " + mismatch);
+				System.exit(-1);
+			}
+		}
+		System.out.println("OrderBook matches the reference model over " + rounds + " rounds of " + events + " events");
+	}
+
+	/**
+	*	Feeds a new book and the model the same events
+	*	@return description of the first mismatch, null if there is none
+	*/
+	String runRound(int events) {
+		book = new OrderBook(0);
+		book.setTradeListener(this);
+		resting.clear();
+		byHandle.clear();
+		Arrays.fill(handles, OrderBook.NO_ORDER);
+		lastTradeTick = OrderBook.NO_PRICE;
+		tradedVolume = 0;
+		submittedOrders = 0;
+		for (int e = 0; e < events; e++) {
+			String mismatch = step();
+			if (mismatch != null) {
+				return "event " + e + ": " + mismatch;
+			}
+		}
+		return null;
+	}
+
+	/**
+	*	Applies one random event to the book and the model and compares them
+	*/
+	private String step() {
+		bookTrades.clear();
+		modelTrades.clear();
+		int kind = random.nextInt(100);
+		int slot = random.nextInt(HANDLES);
+		if (kind < 20) {
+			int handle = handles[slot];
+			boolean cancelled = book.cancel(handle);
+			ModelOrder order = byHandle.remove(handle);
+			if (order != null) {
+				resting.remove(order);
+			}
+			if (cancelled != (order != null)) {
+				return "cancel of " + handle + " returned " + cancelled;
+			}
+		} else if (kind < 21) {
+			book.clear();
+			book.resetTrades();
+			resting.clear();
+			byHandle.clear();
+			lastTradeTick = OrderBook.NO_PRICE;
+			tradedVolume = 0;
+			submittedOrders = 0;
+		} else {
+			boolean buy = random.nextInt(2) == 0;
+			int tick = kind < 23 ? random.nextInt(FAR_TICKS) - 10 : CENTRE_TICK + random.nextInt(2 * SPREAD_TICKS + 1) - SPREAD_TICKS;
+			int quantity = 1 + random.nextInt(MAX_QUANTITY);
+			int owner = random.nextInt(1000);
+			int handle = buy ? book.buy(owner, tick, quantity) : book.sell(owner, tick, quantity);
+			int left = submit(buy, owner, tick, quantity);
+			if ((handle == OrderBook.NO_ORDER) != (left == 0)) {
+				return "order " + (buy ? "buy " : "sell ") + quantity + " at " + tick + " returned handle " + handle
+					+ " with " + left + " left in the model";
+			}
+			if (handle != OrderBook.NO_ORDER) {
+				if (byHandle.containsKey(handle)) {
+					return "handle " + handle + " given to two resting orders";
+				}
+				byHandle.put(handle, resting.get(resting.size() - 1));
+			}
+			handles[slot] = handle;
+		}
+		return compare();
+	}
+
+	/**
+	*	Matches an order against the model's resting orders and rests what is left of it
+	*	@return quantity left resting
+	*/
+	private int submit(boolean buy, int owner, int limitTick, int quantity) {
+		submittedOrders++;
+		while (quantity > 0) {
+			ModelOrder best = null;
+			for (ModelOrder o : resting) {
+				if (o.buy == buy || (buy ? o.tick > limitTick : o.tick < limitTick)) {
+					continue;
+				}
+				if (best == null || (buy ? o.tick < best.tick : o.tick > best.tick)
+						|| (o.tick == best.tick && o.sequence < best.sequence)) {
+					best = o;
+				}
+			}
+			if (best == null) {
+				break;
+			}
+			int traded = Math.min(quantity, best.quantity);
+			best.quantity -= traded;
+			quantity -= traded;
+			modelTrades.add(new int[] {buy ? owner : best.owner, buy ? best.owner : owner, best.tick, traded});
+			lastTradeTick = best.tick;
+			tradedVolume += traded;
+			if (best.quantity == 0) {
+				resting.remove(best);
+				byHandle.values().remove(best);
+			}
+		}
+		if (quantity > 0) {
+			resting.add(new ModelOrder(buy, owner, Math.max(1, limitTick), quantity, sequence++));
+		}
+		return quantity;
+	}
+
+	/**
+	*	@return description of the first difference between the book and the model, null if there is none
+	*/
+	private String compare() {
+		if (bookTrades.size() != modelTrades.size()) {
+			return "book traded " + bookTrades.size() + " times, model " + modelTrades.size() + " times";
+		}
+		for (int t = 0; t < bookTrades.size(); t++) {
+			if (!Arrays.equals(bookTrades.get(t), modelTrades.get(t))) {
+				return "trade " + t + " was " + Arrays.toString(bookTrades.get(t)) + ", model " + Arrays.toString(modelTrades.get(t));
+			}
+		}
+		int bestBid = OrderBook.NO_PRICE;
+		int bestAsk = OrderBook.NO_PRICE;
+		for (ModelOrder o : resting) {
+			if (o.buy && (bestBid == OrderBook.NO_PRICE || o.tick > bestBid)) {
+				bestBid = o.tick;
+			}
+			if (!o.buy && (bestAsk == OrderBook.NO_PRICE || o.tick < bestAsk)) {
+				bestAsk = o.tick;
+			}
+		}
+		if (book.getBestBid() != bestBid || book.getBestAsk() != bestAsk) {
+			return "best prices " + book.getBestBid() + "/" + book.getBestAsk() + ", model " + bestBid + "/" + bestAsk;
+		}
+		if (bestBid != OrderBook.NO_PRICE && book.getBidVolume(bestBid) != volume(true, bestBid)) {
+			return "bid volume at " + bestBid + " is " + book.getBidVolume(bestBid) + ", model " + volume(true, bestBid);
+		}
+		if (bestAsk != OrderBook.NO_PRICE && book.getAskVolume(bestAsk) != volume(false, bestAsk)) {
+			return "ask volume at " + bestAsk + " is " + book.getAskVolume(bestAsk) + ", model " + volume(false, bestAsk);
+		}
+		if (book.getOrderCount() != resting.size()) {
+			return "book holds " + book.getOrderCount() + " orders, model " + resting.size();
+		}
+		if (book.getLastTradeTick() != lastTradeTick || book.getTradedVolume() != tradedVolume
+				|| book.getSubmittedOrders() != submittedOrders) {
+			return "trade counters " + book.getLastTradeTick() + "/" + book.getTradedVolume() + "/" + book.getSubmittedOrders()
+				+ ", model " + lastTradeTick + "/" + tradedVolume + "/" + submittedOrders;
+		}
+		return null;
+	}
+
+	private long volume(boolean buy, int tick) {
+		long total = 0;
+		for (ModelOrder o : resting) {
+			if (o.buy == buy && o.tick == tick) {
+				total += o.quantity;
+			}
+		}
+		return total;
+	}
+
+	public void trade(int stockId, int buyer, int seller, int priceTick, int quantity) {
+		bookTrades.add(new int[] {buyer, seller, priceTick, quantity});
+	}
+
+	/**
+	*	An order resting in the reference model
+	*/
+	private static class ModelOrder {
+		private boolean buy;
+		private int owner;
+		private int tick;
+		private int quantity;
+		private long sequence;
+
+		ModelOrder(boolean newBuy, int newOwner, int newTick, int newQuantity, long newSequence) {
+			this.buy = newBuy;
+			this.owner = newOwner;
+			this.tick = newTick;
+			this.quantity = newQuantity;
+			this.sequence = newSequence;
+		}
+	}
+}
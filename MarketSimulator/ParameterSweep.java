@@ -0,0 +1,293 @@
+package MarketSimulator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+*	The ParameterSweep class runs many headless simulations over a grid of settings and a
+*	range of seeds, and summarises how the market behaves at every point of the grid.
+*
+*	Options take the same values as the command line of Main. An option given a comma
+*	separated list of values becomes an axis of the grid, and every combination of the
+*	values is run once for every seed, e.g.
+*
+*	java MarketSimulator.ParameterSweep --agents 100 --days 250 --seeds 1-32 --risk-upper 500,1000 --trade-max 50,100 --overcommit 0/0/0,33/33/33
+*
+*	runs 4 grid points of 32 seeds each. Every run has its own SimulationConfig and
+*	SimulationEngine and shares nothing with the others, so the runs are executed
+*	concurrently, --threads of them at a time, on virtual threads where the JVM has them
+*	and on a fixed thread pool otherwise. A run is only started when one of those before it
+*	has finished, so the sweep holds no more than --threads runs whatever the grid.
+*
+*	The results of every grid point are summarised as they come in by QuantileSketches:
+*	the final price index, its return over the run, the volatility of its daily returns,
+*	its largest drawdown and the number of transactions. Results are added in seed order,
+*	so a sweep always prints the same summary however its runs were scheduled.
+*
+*	@author Alexandros Antoniou
+*/
+public class ParameterSweep {
+
+	public static final double[] QUANTILES = {0.05, 0.5, 0.95};
+	public static final String[] METRICS = {"final index", "return %", "volatility %", "drawdown %", "transactions"};
+
+	private List<String> fixedArgs = new ArrayList<String>();
+	private List<String> axisNames = new ArrayList<String>();
+	private List<String[]> axisValues = new ArrayList<String[]>();
+	private long firstSeed = 1;
+	private long lastSeed = 10;
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	public static void main(String[] args) throws InterruptedException {
+		ParameterSweep sweep = new ParameterSweep();
+		try {
+			sweep.parseArguments(args);
+		} catch(IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			printUsage();
+			System.exit(-1);
+			return;
+		}
+		sweep.run();
+	}
+
+	/**
+	*	Splits the arguments into the seeds, the number of threads, the options every run
+	*	shares and the axes of the grid
+	*/
+	void parseArguments(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String option = args[i];
+			if (option.equals("--help") || option.equals("-h")) {
+				printUsage();
+				System.exit(0);
+			}
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for " + option);
+			}
+			String value = args[++i];
+			try {
+				switch(option) {
+					case "--seeds":
+						int dash = value.indexOf('-', 1);
+						firstSeed = Long.parseLong(dash < 0 ? value : value.substring(0, dash));
+						lastSeed = dash < 0 ? firstSeed : Long.parseLong(value.substring(dash + 1));
+						if (lastSeed < firstSeed) {
+							throw new IllegalArgumentException("Empty seed range " + value);
+						}
+						break;
+					case "--threads": threads = Math.max(1, Integer.parseInt(value)); break;
+					case "--seed": throw new IllegalArgumentException("Use --seeds to give the range of seeds");
+					default:
+						if (value.indexOf(',') >= 0) {
+							axisNames.add(option);
+							axisValues.add(value.split(","));
+						} else {
+							fixedArgs.add(option);
+							fixedArgs.add(value);
+						}
+				}
+			} catch(NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+			}
+		}
+		for (String[] point : gridPoints()) {
+			Main.parseArguments(runArguments(point, firstSeed));
+		}
+	}
+
+	static void printUsage() {
+		System.out.println("Usage: java MarketSimulator.ParameterSweep [options]");
+		System.out.println("Takes the options of MarketSimulator.Main, an option given values separated by commas is swept over.");
+		System.out.println("  --seeds <a-b>  seeds every point of the grid is run with, 1-10 by default");
+		System.out.println("  --threads <n>  simulations run at the same time, the number of processors by default");
+	}
+
+	/**
+	*	@return every combination of the values of the axes, in the order the axes were given
+	*/
+	List<String[]> gridPoints() {
+		List<String[]> points = new ArrayList<String[]>();
+		points.add(new String[0]);
+		for (String[] values : axisValues) {
+			List<String[]> next = new ArrayList<String[]>();
+			for (String[] point : points) {
+				for (String value : values) {
+					String[] extended = Arrays.copyOf(point, point.length + 1);
+					extended[point.length] = value.trim();
+					next.add(extended);
+				}
+			}
+			points = next;
+		}
+		return points;
+	}
+
+	private String[] runArguments(String[] point, long seed) {
+		List<String> args = new ArrayList<String>(fixedArgs);
+		for (int a = 0; a < point.length; a++) {
+			args.add(axisNames.get(a));
+			args.add(point[a]);
+		}
+		args.add("--seed");
+		args.add(Long.toString(seed));
+		return args.toArray(new String[0]);
+	}
+
+	/**
+	*	Runs every point of the grid with every seed and prints the summaries
+	*/
+	void run() throws InterruptedException {
+		List<String[]> points = gridPoints();
+		int seeds = (int)(lastSeed - firstSeed + 1);
+		final Summary[] summaries = new Summary[points.size()];
+		for (int p = 0; p < summaries.length; p++) {
+			summaries[p] = new Summary();
+		}
+
+		ExecutorService executor = virtualThreadExecutor();
+		boolean virtual = executor != null;
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads);
+		}
+		System.out.println("Running " + points.size() + " grid points x " + seeds + " seeds, " + threads
+			+ " at a time on " + (virtual ? "virtual threads" : "a thread pool"));
+		final Semaphore running = new Semaphore(threads);
+		final AtomicInteger failed = new AtomicInteger();
+		long start = System.nanoTime();
+		for (int p = 0; p < points.size(); p++) {
+			for (int s = 0; s < seeds; s++) {
+				final Summary summary = summaries[p];
+				final int run = s;
+				final String[] args = runArguments(points.get(p), firstSeed + s);
+				running.acquire();
+				executor.execute(() -> {
+					double[] metrics = Summary.FAILED;
+					try {
+						metrics = simulate(args);
+					} catch(Exception e) {
+						if (failed.getAndIncrement() == 0) {
+							System.err.println("Run failed: " + e);
+						}
+					} finally {
+						summary.add(run, metrics);
+						running.release();
+					}
+				});
+			}
+		}
+		running.acquire(threads);
+		executor.shutdown();
+		System.out.println(String.format("Finished in %.1f s%s", (System.nanoTime() - start) / 1e9,
+			failed.get() > 0 ? ", " + failed.get() + " runs failed" : ""));
+
+		for (int p = 0; p < points.size(); p++) {
+			print(points.get(p), summaries[p]);
+		}
+	}
+
+	/**
+	*	@return an executor starting a virtual thread per task, null if the JVM has no virtual threads
+	*/
+	static ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	*	Runs a single simulation
+	*	@param args command line of the run
+	*	@return the value of every metric, in the order of METRICS
+	*/
+	static double[] simulate(String[] args) throws IOException {
+		SimulationEngine engine = new SimulationEngine(Main.parseArguments(args));
+		SimulationResult result;
+		try {
+			result = engine.run();
+		} finally {
+			engine.shutdown();
+		}
+		double[] index = result.getIndex();
+		double returnSum = 0;
+		double returnSqrSum = 0;
+		double peak = index.length > 0 ? index[0] : 0;
+		double drawdown = 0;
+		for (int i = 1; i < index.length; i++) {
+			double r = (index[i] / index[i - 1] - 1) * 100;
+			returnSum += r;
+			returnSqrSum += r * r;
+			peak = Math.max(peak, index[i]);
+			drawdown = Math.max(drawdown, (1 - index[i] / peak) * 100);
+		}
+		int days = index.length - 1;
+		double volatility = days > 1 ? Math.sqrt(Math.max(0, (returnSqrSum - returnSum * returnSum / days) / (days - 1))) : 0;
+		double totalReturn = index.length > 0 ? (index[index.length - 1] / index[0] - 1) * 100 : 0;
+		return new double[] {result.getFinalIndex(), totalReturn, volatility, drawdown, result.getTotalTransactions()};
+	}
+
+	private void print(String[] point, Summary summary) {
+		StringBuilder title = new StringBuilder();
+		for (int a = 0; a < point.length; a++) {
+			title.append(axisNames.get(a)).append(' ').append(point[a]).append("  ");
+		}
+		System.out.println();
+		System.out.println((title.length() > 0 ? title.toString() : "all runs  ") + "(" + summary.getCount() + " runs)");
+		System.out.println(String.format("  %-14s %12s %12s %12s %12s %12s", "", "mean", "sd", "p5", "p50", "p95"));
+		for (int m = 0; m < METRICS.length; m++) {
+			QuantileSketch sketch = summary.getSketch(m);
+			System.out.println(String.format("  %-14s %12.2f %12.2f %12.2f %12.2f %12.2f", METRICS[m], sketch.getMean(),
+				sketch.getStandardDeviation(), sketch.getQuantile(0), sketch.getQuantile(1), sketch.getQuantile(2)));
+		}
+	}
+
+	/**
+	*	Summary of the runs of one grid point
+	*	Runs finish in any order, the metrics of a run are held back until every run
+	*	before it has been added, so the sketches always see the runs in seed order
+	*	Only runs that finished before an earlier one are held, no more than the runs
+	*	running at a time, and runs that failed are added as FAILED and skipped
+	*/
+	static class Summary {
+		static final double[] FAILED = new double[0];
+
+		private QuantileSketch[] sketches = new QuantileSketch[METRICS.length];
+		private Map<Integer, double[]> pending = new HashMap<Integer, double[]>();
+		private int next;
+
+		Summary() {
+			for (int m = 0; m < sketches.length; m++) {
+				sketches[m] = new QuantileSketch(QUANTILES);
+			}
+		}
+
+		synchronized void add(int run, double[] metrics) {
+			pending.put(run, metrics);
+			double[] ready;
+			while ((ready = pending.remove(next)) != null) {
+				for (int m = 0; m < ready.length; m++) {
+					sketches[m].add(ready[m]);
+				}
+				next++;
+			}
+		}
+
+		synchronized long getCount() {
+			return sketches[0].getCount();
+		}
+
+		synchronized QuantileSketch getSketch(int metric) {
+			return sketches[metric];
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package MarketSimulator;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+*	PriceHistory stores a series of prices in a primitive double array.
+*
+*	Keeping the prices of every day in an ArrayList<Double> boxes every value and grows
+*	without limit. A PriceHistory has a retention limit instead:
+*	- with a limit of 0 every price is kept and the array grows as needed
+*	- with a positive limit the array is a ring buffer holding only the most recent prices,
+*	  the oldest price is overwritten once the buffer is full, so memory stays flat
+*
+*	Prices are indexed from the oldest one still held.
+*
+*	@author Alexandros Antoniou
+*/
+public class PriceHistory {
+
+	public static final int UNLIMITED = 0;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private double[] prices;
+	private int limit;
+	private int start;
+	private int size;
+	private long totalCount;
+
+	/**
+	*	Creates a history that keeps every price
+	*/
+	PriceHistory() {
+		this(UNLIMITED);
+	}
+
+	/**
+	*	@param newLimit maximum number of prices kept, UNLIMITED to keep all of them
+	*/
+	PriceHistory(int newLimit) {
+		if (newLimit < 0) {
+			throw new IllegalArgumentException("History limit can not be negative: " + newLimit);
+		}
+		this.limit = newLimit;
+		this.prices = new double[newLimit == UNLIMITED ? INITIAL_CAPACITY : Math.min(newLimit, INITIAL_CAPACITY)];
+	}
+
+	/**
+	*	Appends a price, dropping the oldest one if the history is at its limit
+	*	@param price the latest price
+	*/
+	public void add(double price) {
+		totalCount++;
+		if (size == prices.length) {
+			if (limit == UNLIMITED || size < limit) {
+				grow();
+			} else {
+				prices[start] = price;
+				start = (start + 1) % prices.length;
+				return;
+			}
+		}
+		prices[(start + size) % prices.length] = price;
+		size++;
+	}
+
+	private void grow() {
+		int capacity = prices.length * 2;
+		if (limit != UNLIMITED) {
+			capacity = Math.min(capacity, limit);
+		}
+		double[] grown = new double[capacity];
+		copyTo(grown);
+		prices = grown;
+		start = 0;
+	}
+
+	private void copyTo(double[] destination) {
+		int firstPart = Math.min(size, prices.length - start);
+		System.arraycopy(prices, start, destination, 0, firstPart);
+		System.arraycopy(prices, 0, destination, firstPart, size - firstPart);
+	}
+
+	/**
+	*	@param i position of the price, 0 being the oldest price held
+	*	@return the price at that position
+	*/
+	public double get(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		}
+		return prices[(start + i) % prices.length];
+	}
+
+	/**
+	*	@return the most recent price
+	*/
+	public double getLast() {
+		return get(size - 1);
+	}
+
+	/**
+	*	@return number of prices currently held
+	*/
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	*	@return number of prices ever added, including the ones dropped by the limit
+	*/
+	public long getTotalCount() {
+		return this.totalCount;
+	}
+
+	/**
+	*	Used when restoring a history from a checkpoint, after its prices have been added again
+	*/
+	void setTotalCount(long newTotalCount) {
+		this.totalCount = newTotalCount;
+	}
+
+	public int getLimit() {
+		return this.limit;
+	}
+
+	/**
+	*	@return the prices held, oldest first, in a new array
+	*/
+	public double[] toArray() {
+		double[] copy = new double[size];
+		copyTo(copy);
+		return copy;
+	}
+
+	/**
+	*	@return a read-only list view of the prices held, oldest first
+	*/
+	public List<Double> asList() {
+		return new ListView();
+	}
+
+	/**
+	*	Creates a history with a different limit holding the most recent prices of this one
+	*	@param newLimit limit of the new history
+	*	@return the new history
+	*/
+	public PriceHistory withLimit(int newLimit) {
+		PriceHistory copy = new PriceHistory(newLimit);
+		int from = (newLimit == UNLIMITED) ? 0 : Math.max(0, size - newLimit);
+		for (int i = from; i < size; i++) {
+			copy.add(get(i));
+		}
+		copy.totalCount = this.totalCount;
+		return copy;
+	}
+
+	private class ListView extends AbstractList<Double> implements RandomAccess {
+		public Double get(int i) {
+			return PriceHistory.this.get(i);
+		}
+
+		public int size() {
+			return PriceHistory.this.size;
+		}
+	}
+}
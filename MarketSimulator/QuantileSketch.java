@@ -0,0 +1,179 @@
+package MarketSimulator;
+
+import java.util.Arrays;
+
+/**
+*	QuantileSketch keeps running estimates of a few quantiles of a stream of values, along
+*	with their count, mean, standard deviation, minimum and maximum, in constant memory.
+*
+*	Every quantile is estimated with the P-square algorithm of Jain and Chlamtac, which
+*	tracks five markers per quantile: the minimum, the maximum, the quantile itself and
+*	the quantiles halfway to either end. Each value moves the markers' counts, and a marker
+*	drifting away from its desired position is moved one step, its height adjusted with a
+*	parabolic fit through its neighbours.
+*
+*	P-square is rough on short streams, so the first EXACT_LIMIT values are kept and the
+*	quantiles calculated exactly from them. Once the stream grows beyond that, the markers
+*	are placed on the kept values and the buffer is dropped.
+*
+*	@author Alexandros Antoniou
+*/
+public class QuantileSketch {
+
+	public static final int EXACT_LIMIT = 512;
+
+	private double[] quantiles;
+	private double[][] heights;
+	private double[][] positions;
+	private double[][] desired;
+	private double[][] increments;
+	private double[] exact = new double[EXACT_LIMIT];
+	private long count;
+	private double mean;
+	private double sqrDev;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	*	@param newQuantiles quantiles to estimate, each between 0 and 1
+	*/
+	QuantileSketch(double... newQuantiles) {
+		this.quantiles = newQuantiles.clone();
+		int n = quantiles.length;
+		this.heights = new double[n][5];
+		this.positions = new double[n][];
+		this.desired = new double[n][];
+		this.increments = new double[n][];
+		for (int i = 0; i < n; i++) {
+			double p = quantiles[i];
+			if (!(p >= 0 && p <= 1)) {
+				throw new IllegalArgumentException("Quantile must be between 0 and 1: " + p);
+			}
+			increments[i] = new double[] {0, p / 2, p, (1 + p) / 2, 1};
+			positions[i] = new double[5];
+			desired[i] = new double[5];
+		}
+	}
+
+	/**
+	*	Adds a value to the stream
+	*/
+	public void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		sqrDev += delta * (value - mean);
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+		if (count <= EXACT_LIMIT) {
+			exact[(int)count - 1] = value;
+			return;
+		}
+		if (exact != null) {
+			placeMarkers();
+		}
+		for (int i = 0; i < quantiles.length; i++) {
+			update(heights[i], positions[i], desired[i], increments[i], value);
+		}
+	}
+
+	/**
+	*	Places the markers of every quantile on the sorted values kept so far
+	*/
+	private void placeMarkers() {
+		Arrays.sort(exact);
+		int n = exact.length;
+		for (int i = 0; i < quantiles.length; i++) {
+			int previous = 0;
+			for (int j = 0; j < 5; j++) {
+				desired[i][j] = 1 + (n - 1) * increments[i][j];
+				int position = Math.max(previous + 1, Math.min(n - 4 + j, (int)Math.round(desired[i][j])));
+				positions[i][j] = position;
+				heights[i][j] = exact[position - 1];
+				previous = position;
+			}
+		}
+		exact = null;
+	}
+
+	private static void update(double[] q, double[] n, double[] d, double[] dn, double value) {
+		int k;
+		if (value < q[0]) {
+			q[0] = value;
+			k = 0;
+		} else if (value >= q[4]) {
+			q[4] = Math.max(q[4], value);
+			k = 3;
+		} else {
+			k = 0;
+			while (value >= q[k + 1]) {
+				k++;
+			}
+		}
+		for (int j = k + 1; j < 5; j++) {
+			n[j]++;
+		}
+		for (int j = 0; j < 5; j++) {
+			d[j] += dn[j];
+		}
+		for (int j = 1; j <= 3; j++) {
+			double offset = d[j] - n[j];
+			if ((offset >= 1 && n[j + 1] - n[j] > 1) || (offset <= -1 && n[j - 1] - n[j] < -1)) {
+				int step = offset > 0 ? 1 : -1;
+				double parabolic = q[j] + step / (n[j + 1] - n[j - 1])
+					* ((n[j] - n[j - 1] + step) * (q[j + 1] - q[j]) / (n[j + 1] - n[j])
+					+ (n[j + 1] - n[j] - step) * (q[j] - q[j - 1]) / (n[j] - n[j - 1]));
+				if (q[j - 1] < parabolic && parabolic < q[j + 1]) {
+					q[j] = parabolic;
+				} else {
+					q[j] += step * (q[j + step] - q[j]) / (n[j + step] - n[j]);
+				}
+				n[j] += step;
+			}
+		}
+	}
+
+	/**
+	*	@param i index of the quantile, in the order given to the constructor
+	*	@return estimate of the quantile, NaN if no value has been added
+	*/
+	public double getQuantile(int i) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (exact != null) {
+			double[] sorted = Arrays.copyOf(exact, (int)count);
+			Arrays.sort(sorted);
+			double rank = quantiles[i] * (count - 1);
+			int below = (int)rank;
+			if (below + 1 >= count) {
+				return sorted[below];
+			}
+			return sorted[below] + (rank - below) * (sorted[below + 1] - sorted[below]);
+		}
+		return heights[i][2];
+	}
+
+	public long getCount() {
+		return this.count;
+	}
+
+	public double getMean() {
+		return count == 0 ? Double.NaN : this.mean;
+	}
+
+	/**
+	*	@return sample standard deviation of the values, 0 for fewer than two values
+	*/
+	public double getStandardDeviation() {
+		return count < 2 ? 0 : Math.sqrt(sqrDev / (count - 1));
+	}
+
+	public double getMin() {
+		return this.min;
+	}
+
+	public double getMax() {
+		return this.max;
+	}
+}
@@ -0,0 +1,152 @@
+package MarketSimulator;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+*	RandomSource is the random number generator used throughout the simulation.
+*
+*	It implements the SplitMix64 algorithm, the same one behind java.util.SplittableRandom:
+*	the state is a single 64 bit counter advanced by a fixed odd gamma, and every output is
+*	a mix of the counter. Drawing a number is a couple of multiplications with no allocation
+*	or synchronisation, which keeps it cheap enough for the stock price updates.
+*
+*	A run creates one RandomSource from its seed and splits an independent stream off it for
+*	every stock and every agent, so the same seed always gives the same run. Unlike
+*	SplittableRandom the state can be read back and restored.
+*
+*	@author Alexandros Antoniou
+*/
+public class RandomSource {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+	private static final AtomicLong defaultSeeds = new AtomicLong(System.nanoTime());
+
+	private long seed;
+	private final long gamma;
+
+	/**
+	*	Creates a generator with a seed that differs from every other unseeded generator
+	*/
+	RandomSource() {
+		this(mix64(defaultSeeds.getAndAdd(2 * GOLDEN_GAMMA)) ^ mix64(System.nanoTime()));
+	}
+
+	/**
+	*	@param newSeed seed of the generator, equal seeds produce equal sequences
+	*/
+	RandomSource(long newSeed) {
+		this(newSeed, GOLDEN_GAMMA);
+	}
+
+	/**
+	*	Recreates a generator from a state previously read with getSeed() and getGamma()
+	*/
+	RandomSource(long newSeed, long newGamma) {
+		this.seed = newSeed;
+		this.gamma = newGamma;
+	}
+
+	long getSeed() {
+		return this.seed;
+	}
+
+	long getGamma() {
+		return this.gamma;
+	}
+
+	/**
+	*	Splits off a new generator whose sequence is independent of this one
+	*	@return the new generator
+	*/
+	public RandomSource split() {
+		return new RandomSource(nextLong(), mixGamma(nextSeed()));
+	}
+
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	public int nextInt() {
+		return mix32(nextSeed());
+	}
+
+	/**
+	*	@param bound upper bound, exclusive, must be positive
+	*	@return a uniformly distributed integer between 0 and bound
+	*/
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("Bound must be positive: " + bound);
+		}
+		int r = mix32(nextSeed());
+		int m = bound - 1;
+		if ((bound & m) == 0) {
+			return r & m;
+		}
+		for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1) {
+		}
+		return r;
+	}
+
+	/**
+	*	@return a uniformly distributed double between 0.0 inclusive and 1.0 exclusive
+	*/
+	public double nextDouble() {
+		return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	*	Draws a normally distributed double with the polar method
+	*	The second value the method produces is discarded, so the generator's state
+	*	stays a single counter
+	*	@return a normally distributed double with mean 0.0 and standard deviation 1.0
+	*/
+	public double nextGaussian() {
+		double v1;
+		double v2;
+		double s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		return v1 * Math.sqrt(-2 * Math.log(s) / s);
+	}
+
+	/**
+	*	Shuffles a list in place with the Fisher-Yates algorithm, in the same way
+	*	Collections.shuffle does with a java.util.Random
+	*	@param list list to shuffle
+	*/
+	public <T> void shuffle(List<T> list) {
+		for (int i = list.size(); i > 1; i--) {
+			int j = nextInt(i);
+			list.set(j, list.set(i - 1, list.get(j)));
+		}
+	}
+
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static int mix32(long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
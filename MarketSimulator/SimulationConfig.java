@@ -0,0 +1,315 @@
+package MarketSimulator;
+
+import java.io.File;
+
+/**
+*	The SimulationConfig class holds every setting a single simulation run needs.
+*
+*	It is filled in either by the settings window or by the command line arguments
+*	given to Main, and is handed to the SimulationEngine which reads it once when
+*	setting up the marketplace.
+*
+*	Settings available:
+*	- Number of agents
+*	- Number of stocks
+*	- Length of simulation
+*	- Seed for the random number generators
+*	- Volatility tracker of the stocks: cumulative, rolling:<window> or ewma:<decay>
+*	- Number of threads used to evaluate the agents' portfolios and settle their trades
+*	- Number of past prices each stock keeps
+*	- Number of preferred stocks each agent ranks
+*	- Whether the stocks are read from the CSVs or generated, and which CSVs they are read from
+*	- The CSV of past prices the stocks start with, if any
+*	- Whether the agents trade through order books or by direct swaps
+*	- The bounds of the agents' risk and weights, the number of stocks traded at a time,
+*	  the tick size of the stocks and the split of the agents into overcommitment tiers
+*
+*	@author Alexandros Antoniou
+*/
+public class SimulationConfig {
+
+	public static final int DEFAULT_AGENTS = 50;
+	public static final int DEFAULT_STOCKS = 10;
+	public static final int DEFAULT_LENGTH = 500;
+	public static final String DEFAULT_VOLATILITY = "cumulative";
+	public static final int DEFAULT_RANKING = 5;
+
+	private int agentNumber;
+	private int stockNumber;
+	private int simulationLength;
+	private long seed;
+	private String volatility = DEFAULT_VOLATILITY;
+	private int parallelism = 1;
+	private int historyLimit = PriceHistory.UNLIMITED;
+	private int rankingSize = DEFAULT_RANKING;
+	private UniverseGenerator universeGenerator;
+	private File companiesFile = new File(CSVParser.COMPANIES_CSV);
+	private File stocksFile = new File(CSVParser.STOCKS_CSV);
+	private File priceHistoryFile;
+	private boolean orderBookMarket;
+	private int riskLowerLimit = Agent.RISK_LOWER_LIMIT;
+	private int riskUpperLimit = Agent.RISK_UPPER_LIMIT;
+	private int tradeMax = SimulationEngine.MARKETPLACE_TRADE_MAX;
+	private double tickSize = Stock.TICK_SIZE;
+	private int[] overcommitSplit = new int[3];
+
+	SimulationConfig() {
+		this(DEFAULT_AGENTS, DEFAULT_STOCKS, DEFAULT_LENGTH, System.nanoTime());
+	}
+
+	/**
+	*	@param newAgentNumber the number of agents in the marketplace
+	*	@param newStockNumber the number of stocks the agents trade
+	*	@param newLength the number of days the simulation runs for
+	*	@param newSeed seed every random number generator of the run is derived from
+	*/
+	SimulationConfig(int newAgentNumber, int newStockNumber, int newLength, long newSeed) {
+		this.agentNumber = newAgentNumber;
+		this.stockNumber = newStockNumber;
+		this.simulationLength = newLength;
+		this.seed = newSeed;
+	}
+
+	public int getAgentNumber() {
+		return this.agentNumber;
+	}
+
+	public int getStockNumber() {
+		return this.stockNumber;
+	}
+
+	public int getSimulationLength() {
+		return this.simulationLength;
+	}
+
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	*	@return number of threads evaluating the agents and settling trades, 1 uses the calling thread only
+	*/
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	*	@return number of past prices each stock keeps, PriceHistory.UNLIMITED to keep all of them
+	*/
+	public int getHistoryLimit() {
+		return this.historyLimit;
+	}
+
+	/**
+	*	@return number of preferred stocks each agent ranks every day
+	*/
+	public int getRankingSize() {
+		return this.rankingSize;
+	}
+
+	/**
+	*	@return generator of the companies and stocks, null when they are read from the CSVs
+	*/
+	public UniverseGenerator getUniverseGenerator() {
+		return this.universeGenerator;
+	}
+
+	public File getCompaniesFile() {
+		return this.companiesFile;
+	}
+
+	public File getStocksFile() {
+		return this.stocksFile;
+	}
+
+	/**
+	*	@return CSV of the past prices the stocks start with, null to start with their starting price only
+	*/
+	public File getPriceHistoryFile() {
+		return this.priceHistoryFile;
+	}
+
+	/**
+	*	@return whether the agents trade through a limit order book per stock instead of swapping
+	*	a fixed number of stocks with the agent whose best ranked stock matches
+	*/
+	public boolean isOrderBookMarket() {
+		return this.orderBookMarket;
+	}
+
+	/**
+	*	@return lowest risk and weight an agent is given, each agent's is drawn
+	*	uniformly between this and this plus the upper limit
+	*/
+	public int getRiskLowerLimit() {
+		return this.riskLowerLimit;
+	}
+
+	public int getRiskUpperLimit() {
+		return this.riskUpperLimit;
+	}
+
+	/**
+	*	@return number of stocks traded at a time
+	*/
+	public int getTradeMax() {
+		return this.tradeMax;
+	}
+
+	/**
+	*	@return least amount the price of a stock moves by
+	*/
+	public double getTickSize() {
+		return this.tickSize;
+	}
+
+	/**
+	*	@param tier overcommitment tier, 1 to 3
+	*	@return percentage of agents put in the tier, the agents in no tier never overcommit
+	*/
+	public int getOvercommitShare(int tier) {
+		return this.overcommitSplit[tier - 1];
+	}
+
+	/**
+	*	@return whether any agent is put in an overcommitment tier
+	*/
+	public boolean hasOvercommitSplit() {
+		return overcommitSplit[0] + overcommitSplit[1] + overcommitSplit[2] > 0;
+	}
+
+	public void setAgentNumber(int newAgentNumber) {
+		this.agentNumber = newAgentNumber;
+	}
+
+	public void setStockNumber(int newStockNumber) {
+		this.stockNumber = newStockNumber;
+	}
+
+	public void setSimulationLength(int newLength) {
+		this.simulationLength = newLength;
+	}
+
+	public void setSeed(long newSeed) {
+		this.seed = newSeed;
+	}
+
+	public String getVolatility() {
+		return this.volatility;
+	}
+
+	/**
+	*	@param newVolatility how the stocks track their volatility: cumulative for the whole
+	*	history, rolling:<window> for the last window prices or ewma:<decay> for an
+	*	exponentially weighted average
+	*	@throws IllegalArgumentException if the tracker is not one of these
+	*/
+	public void setVolatility(String newVolatility) {
+		createVolatilityTracker(newVolatility);
+		this.volatility = newVolatility;
+	}
+
+	/**
+	*	@return a new volatility tracker of the kind set, for a stock to own
+	*/
+	public VolatilityTracker newVolatilityTracker() {
+		return createVolatilityTracker(volatility);
+	}
+
+	private static VolatilityTracker createVolatilityTracker(String spec) {
+		int colon = spec.indexOf(':');
+		String kind = colon < 0 ? spec : spec.substring(0, colon);
+		String parameter = colon < 0 ? null : spec.substring(colon + 1);
+		try {
+			switch(kind) {
+				case "cumulative":
+					if (parameter == null) {
+						return VolatilityTracker.cumulative();
+					}
+					break;
+				case "rolling":
+					return VolatilityTracker.rolling(parameter == null ? VolatilityTracker.DEFAULT_WINDOW : Integer.parseInt(parameter));
+				case "ewma":
+					return VolatilityTracker.ewma(parameter == null ? VolatilityTracker.DEFAULT_DECAY : Double.parseDouble(parameter));
+			}
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid volatility tracker parameter: " + spec);
+		}
+		throw new IllegalArgumentException("Unknown volatility tracker " + spec + ", use cumulative, rolling:<window> or ewma:<decay>");
+	}
+
+	public void setParallelism(int newParallelism) {
+		this.parallelism = Math.max(1, newParallelism);
+	}
+
+	public void setHistoryLimit(int newLimit) {
+		this.historyLimit = newLimit;
+	}
+
+	public void setRankingSize(int newRankingSize) {
+		this.rankingSize = Math.max(1, newRankingSize);
+	}
+
+	public void setUniverseGenerator(UniverseGenerator newGenerator) {
+		this.universeGenerator = newGenerator;
+	}
+
+	public void setCompaniesFile(File newFile) {
+		this.companiesFile = newFile;
+	}
+
+	public void setStocksFile(File newFile) {
+		this.stocksFile = newFile;
+	}
+
+	public void setPriceHistoryFile(File newFile) {
+		this.priceHistoryFile = newFile;
+	}
+
+	public void setRiskLimits(int newLower, int newUpper) {
+		this.riskLowerLimit = newLower;
+		this.riskUpperLimit = newUpper;
+	}
+
+	public void setTradeMax(int newTradeMax) {
+		this.tradeMax = newTradeMax;
+	}
+
+	public void setTickSize(double newTickSize) {
+		this.tickSize = newTickSize;
+	}
+
+	/**
+	*	Sets the percentage of agents put in each overcommitment tier, as on the advanced settings window
+	*	@param tier1 percentage of agents in tier 1
+	*	@param tier2 percentage of agents in tier 2
+	*	@param tier3 percentage of agents in tier 3
+	*/
+	public void setOvercommitSplit(int tier1, int tier2, int tier3) {
+		this.overcommitSplit = new int[] {tier1, tier2, tier3};
+	}
+
+	public void setOrderBookMarket(boolean newOrderBookMarket) {
+		this.orderBookMarket = newOrderBookMarket;
+	}
+
+	public String toString() {
+		String universe = universeGenerator == null ? "" : " " + universeGenerator;
+		String market = orderBookMarket ? " orderbook" : "";
+		String parameters = "";
+		if (riskLowerLimit != Agent.RISK_LOWER_LIMIT || riskUpperLimit != Agent.RISK_UPPER_LIMIT) {
+			parameters += " risk=" + riskLowerLimit + "+" + riskUpperLimit;
+		}
+		if (tradeMax != SimulationEngine.MARKETPLACE_TRADE_MAX) {
+			parameters += " trade=" + tradeMax;
+		}
+		if (tickSize != Stock.TICK_SIZE) {
+			parameters += " tick=" + tickSize;
+		}
+		if (hasOvercommitSplit()) {
+			parameters += " overcommit=" + overcommitSplit[0] + "/" + overcommitSplit[1] + "/" + overcommitSplit[2];
+		}
+		return "agents=" + agentNumber + " stocks=" + stockNumber + " days=" + simulationLength + " seed=" + seed
+			+ (volatility.equals(DEFAULT_VOLATILITY) ? "" : " volatility=" + volatility) + universe + market + parameters;
+	}
+}
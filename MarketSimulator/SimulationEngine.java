@@ -0,0 +1,618 @@
+package MarketSimulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+*	The SimulationEngine class runs the marketplace without any user interface.
+*
+*	It initialises the Companies, Stocks and Agents described by a SimulationConfig
+*	and advances the marketplace one day at a time. None of the AWT or Swing classes
+*	are touched, so the engine can be driven from the command line on machines without
+*	a display, and the MarketPlace window simply draws the results once it is done.
+*
+*	Operations include the initialisation of a number of agents
+*	Operations include the initialisation of a set of stocks and companies
+*	Operations include advancing the marketplace by a single day or the whole run
+*	Operations include collecting the results of a run
+*
+*	@author Alexandros Antoniou
+*/
+public class SimulationEngine {
+
+	public static final int MARKETPLACE_TRADE_MAX = 100;
+	public static final int INITIAL_STOCK_LIMIT = 1000;
+	public static final int EVALUATION_BATCH = 64;
+
+	private SimulationConfig config;
+	private RandomSource random;
+	private RandomSource startingCashRandom;
+	private RandomSource initialAgentStocks;
+	private RandomSource shuffleRandom;
+	private int day;
+	private TradeIndex tradeIndex;
+	private TradeSettlement settlement;
+	private ForkJoinPool evaluationPool;
+	private EventLog eventLog;
+	private MarketData marketData;
+	private OrderBook[] orderBooks;
+	private CheckpointWriter checkpointWriter;
+	private int checkpointInterval;
+	private TickProfiler profiler;
+	private int orderFills;
+	AgentStore store;
+	ArrayList<Agent> agents;
+	ArrayList<Stock> stocks;
+	ArrayList<Company> companies;
+	ArrayList<Double> index;
+	ArrayList<Double> marketcap;
+
+	/**
+	*	Reads the companies and stocks and initialises the agents
+	*	Every random number generator of the run is split off a single generator seeded
+	*	from the config, in a fixed order, so the same seed always gives the same run
+	*	@param newConfig settings of the run
+	*	@throws IOException if the company, stock or price history CSVs cannot be read
+	*/
+	SimulationEngine(SimulationConfig newConfig) throws IOException {
+		this.config = newConfig;
+		this.random = new RandomSource(config.getSeed());
+		this.startingCashRandom = random.split();
+		this.initialAgentStocks = random.split();
+		this.shuffleRandom = random.split();
+		this.index = new ArrayList<Double>();
+		this.marketcap = new ArrayList<Double>();
+
+		if ((long)config.getAgentNumber() * INITIAL_STOCK_LIMIT > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many agents, the volume of a company would overflow: " + config.getAgentNumber());
+		}
+		checkParameters(config);
+		Universe universe;
+		if (config.getUniverseGenerator() == null) {
+			universe = CSVParser.parseCSV(config.getCompaniesFile(), config.getStocksFile(), config.getStockNumber());
+		} else {
+			universe = config.getUniverseGenerator().generate(config.getStockNumber(), random.split());
+		}
+		companies = universe.getCompanies();
+		stocks = universe.getStocks();
+		for (int i = 0; i < stocks.size(); i++) {
+			stocks.get(i).setStockId(i);
+			stocks.get(i).setRandomSource(random.split());
+			stocks.get(i).setVolatilityTracker(config.newVolatilityTracker());
+			stocks.get(i).setHistoryLimit(config.getHistoryLimit());
+			stocks.get(i).setTickSize(config.getTickSize());
+		}
+		if (config.getPriceHistoryFile() != null) {
+			CSVParser.parsePriceHistory(config.getPriceHistoryFile(), stocks);
+		}
+
+		initialiseAgents();
+		updateVolume();
+		initialiseStages();
+	}
+
+	/**
+	*	Recreates an engine from the state saved in a checkpoint
+	*	@param newConfig settings of the run
+	*	@param newDay day the run continues from
+	*	@param generators the run's random number generators, in the order getGenerators returns them
+	*	@param newCompanies every company of the marketplace
+	*	@param newStocks every stock, each at the position of its id
+	*	@param newStore the agents' values
+	*	@param newAgents every agent, in trading order
+	*	@param newIndex price index of every day so far
+	*	@param newMarketcap market capitalisation index of every day so far
+	*/
+	SimulationEngine(SimulationConfig newConfig, int newDay, RandomSource[] generators, ArrayList<Company> newCompanies,
+		ArrayList<Stock> newStocks, AgentStore newStore, ArrayList<Agent> newAgents, ArrayList<Double> newIndex, ArrayList<Double> newMarketcap) {
+		this.config = newConfig;
+		this.day = newDay;
+		this.random = generators[0];
+		this.startingCashRandom = generators[1];
+		this.initialAgentStocks = generators[2];
+		this.shuffleRandom = generators[3];
+		this.companies = newCompanies;
+		this.stocks = newStocks;
+		this.store = newStore;
+		this.agents = newAgents;
+		this.index = newIndex;
+		this.marketcap = newMarketcap;
+		initialiseStages();
+	}
+
+	/**
+	*	Checks the market parameters of a config
+	*	@throws IllegalArgumentException if any of them is out of range
+	*/
+	static void checkParameters(SimulationConfig config) {
+		if (config.getRiskLowerLimit() < 0 || config.getRiskUpperLimit() < 0) {
+			throw new IllegalArgumentException("Risk limits can not be negative: " + config.getRiskLowerLimit() + ", " + config.getRiskUpperLimit());
+		}
+		if (config.getTradeMax() < 1) {
+			throw new IllegalArgumentException("Trade size must be positive: " + config.getTradeMax());
+		}
+		if (!(config.getTickSize() > 0)) {
+			throw new IllegalArgumentException("Tick size must be positive: " + config.getTickSize());
+		}
+		int total = 0;
+		for (int tier = 1; tier <= 3; tier++) {
+			if (config.getOvercommitShare(tier) < 0) {
+				throw new IllegalArgumentException("Overcommitment shares can not be negative");
+			}
+			total += config.getOvercommitShare(tier);
+		}
+		if (total > 100) {
+			throw new IllegalArgumentException("Overcommitment shares add up to more than 100%: " + total);
+		}
+	}
+
+	/**
+	*	Creates the stages a day goes through once the stocks and agents are in place
+	*/
+	private void initialiseStages() {
+		tradeIndex = new TradeIndex();
+		if (config.getParallelism() > 1) {
+			evaluationPool = new ForkJoinPool(config.getParallelism());
+		}
+		settlement = new TradeSettlement(store);
+		marketData = new MarketData(stocks);
+		if (config.hasOvercommitSplit()) {
+			store.setMarginAccounts(new MarginAccounts(store));
+		}
+		if (config.isOrderBookMarket()) {
+			initialiseOrderBooks();
+		}
+	}
+
+	/**
+	*	@return the run's random number generators: the one every other is split off, then the ones
+	*	drawing the starting cash, the starting stocks and the trading order of the agents
+	*/
+	RandomSource[] getGenerators() {
+		return new RandomSource[] {random, startingCashRandom, initialAgentStocks, shuffleRandom};
+	}
+
+	/**
+	*	Creates an order book for every stock, whose trades are settled in the agent store
+	*/
+	void initialiseOrderBooks() {
+		orderBooks = new OrderBook[stocks.size()];
+		OrderSettlement settlement = new OrderSettlement();
+		for (int i = 0; i < orderBooks.length; i++) {
+			orderBooks[i] = new OrderBook(i, config.getTickSize());
+			orderBooks[i].setTradeListener(settlement);
+		}
+	}
+
+	public SimulationConfig getConfig() {
+		return this.config;
+	}
+
+	public ArrayList<Agent> getAgents() {
+		return this.agents;
+	}
+
+	public AgentStore getAgentStore() {
+		return this.store;
+	}
+
+	public ArrayList<Stock> getStocks() {
+		return this.stocks;
+	}
+
+	public ArrayList<Company> getCompanies() {
+		return this.companies;
+	}
+
+	public ArrayList<Double> getIndex() {
+		return this.index;
+	}
+
+	public ArrayList<Double> getMarketCap() {
+		return this.marketcap;
+	}
+
+	public MarketData getMarketData() {
+		return this.marketData;
+	}
+
+	public int getDay() {
+		return this.day;
+	}
+
+	/**
+	*	Every price update, trade and index value from now on is written to the event log
+	*	The log is not closed by the engine
+	*	@param log the event log, null to stop logging
+	*/
+	public void setEventLog(EventLog log) {
+		this.eventLog = log;
+	}
+
+	/**
+	*	From now on every day is timed phase by phase and its trades counted by the profiler
+	*	The profiler must only be read from the thread running the engine
+	*	@param newProfiler the profiler, null to stop profiling
+	*/
+	public void setProfiler(TickProfiler newProfiler) {
+		this.profiler = newProfiler;
+	}
+
+	public TickProfiler getProfiler() {
+		return this.profiler;
+	}
+
+	/**
+	*	A random amount of starting cash is calculated, between the two boundaries and
+	*	together with a random number of each stock from giveAgentStocks()
+	*	a number of agents is added to the agent store and an Agent view of each is created
+	*/
+	void initialiseAgents() {
+		store = new AgentStore(stocks, config.getAgentNumber(), config.getRankingSize());
+		agents = new ArrayList<Agent>();
+		for (int i = 0; i < config.getAgentNumber(); i++) {
+			int agentCash = startingCashRandom.nextInt((Agent.UPPER_BOUND_STARTING_CASH - Agent.LOWER_BOUND_STARTING_CASH) + 1) + Agent.LOWER_BOUND_STARTING_CASH;
+			int agentId = store.addAgent(agentCash);
+			giveAgentStocks(agentId);
+			Agent a = new Agent(store, agentId, random.split(), false);
+			a.calcAgentRiskAndWeights(config.getRiskLowerLimit(), config.getRiskUpperLimit());
+			agents.add(a);
+		}
+		if (config.hasOvercommitSplit()) {
+			assignOvercommitTiers(random.split());
+		}
+	}
+
+	/**
+	*	Puts every agent in an overcommitment tier with the probabilities of the config's split
+	*	Agents left over by the split stay in tier 0
+	*	@param tierRandom random number generator the tiers are drawn from
+	*/
+	void assignOvercommitTiers(RandomSource tierRandom) {
+		int tier1 = config.getOvercommitShare(1);
+		int tier2 = tier1 + config.getOvercommitShare(2);
+		int tier3 = tier2 + config.getOvercommitShare(3);
+		for (int a = 0; a < store.getAgentCount(); a++) {
+			int r = tierRandom.nextInt(100);
+			store.overcommitTier[a] = r < tier1 ? 1 : r < tier2 ? 2 : r < tier3 ? 3 : 0;
+		}
+	}
+
+	/**
+	*	Gives an agent a predetermined amount of stocks
+	*	A random integer decides how many stocks of each Stock an agent will own
+	*	@param agentId id of the agent in the agent store
+	*/
+	void giveAgentStocks(int agentId) {
+		for (int i = 0; i < stocks.size(); i++) {
+			int r = Math.abs(initialAgentStocks.nextInt(INITIAL_STOCK_LIMIT));
+			store.setHoldings(agentId, i, r);
+		}
+	}
+
+	void updateVolume() {
+		for (int a = 0; a < store.getAgentCount(); a++) {
+			for (int i = 0; i < stocks.size(); i++) {
+				stocks.get(i).getStockCompany().updateStockVolume(store.getHoldings(a, i));
+			}
+		}
+	}
+
+	/**
+	*	Runs the marketplace for the number of days given in the config
+	*	@return the results of the run
+	*/
+	public SimulationResult run() {
+		while (day < config.getSimulationLength()) {
+			tick();
+			if (checkpointWriter != null && day % checkpointInterval == 0) {
+				checkpointWriter.checkpoint(this);
+			}
+		}
+		return getResult();
+	}
+
+	/**
+	*	From now on run() checkpoints the engine every given number of days
+	*	The writer is not closed by the engine
+	*	@param writer writer the checkpoints are handed to, null to stop checkpointing
+	*	@param interval number of days between checkpoints
+	*/
+	public void setCheckpoints(CheckpointWriter writer, int interval) {
+		if (writer != null && interval < 1) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+		}
+		this.checkpointWriter = writer;
+		this.checkpointInterval = interval;
+	}
+
+	/**
+	*	Advances the marketplace by one day
+	*	Market capitalisations, stock prices and the indices are updated in one pass,
+	*	the agents' assets are marked to the new prices and the margin accounts checked,
+	*	every agent re-evaluates its portfolio,
+	*	the agents trade with one another in a random order, each finding its
+	*	partner through the trade index, with the trades settled in one batch afterwards,
+	*	or placing orders in the order books, and finally
+	*	the marketplace indices are recorded
+	*	When a profiler is set the trades are counted, and on the days it times the clock
+	*	is read between every two phases
+	*	@throws UncheckedIOException if writing to the event log fails
+	*/
+	public void tick() {
+		TickProfiler timing = profiler != null && profiler.isTimedDay() ? profiler : null;
+		long start = timing == null ? 0 : timing.startTick();
+		marketData.update(day);
+		if (eventLog != null) {
+			for (Stock s : stocks) {
+				logPrice(s);
+			}
+		}
+		long t = lap(timing, TickProfiler.PRICES, start);
+		markLedger(day % AssetLedger.REVALUE_DAYS == 0);
+		if (store.getMarginAccounts() != null) {
+			store.getMarginAccounts().checkMarginCalls();
+		}
+		t = lap(timing, TickProfiler.MARK, t);
+
+		evaluateAgents();
+		t = lap(timing, TickProfiler.EVALUATION, t);
+		shuffleRandom.shuffle(agents);
+		t = lap(timing, TickProfiler.SHUFFLE, t);
+		if (orderBooks == null) {
+			matchAgents();
+			t = lap(timing, TickProfiler.MATCHING, t);
+			int executed = settlement.settle(evaluationPool);
+			if (eventLog != null) {
+				logTrades();
+			}
+			t = lap(timing, TickProfiler.SETTLEMENT, t);
+			if (profiler != null) {
+				profiler.countTrades(settlement.size(), executed, settlement.size() - executed);
+			}
+		} else {
+			tradeOrderBooks();
+			t = lap(timing, TickProfiler.ORDER_BOOKS, t);
+		}
+
+		calcIndex();
+		lap(timing, TickProfiler.INDEX, t);
+		day++;
+		if (timing != null) {
+			timing.endTick(start);
+		}
+	}
+
+	/**
+	*	Brings the asset ledger to the current prices if the margin accounts read it every day,
+	*	otherwise only tells it the prices moved so it is valued when it is next read
+	*	@param revalue whether to value the holdings from scratch rather than mark them
+	*/
+	private void markLedger(boolean revalue) {
+		AssetLedger ledger = store.getLedger();
+		if (store.getMarginAccounts() == null) {
+			ledger.invalidate();
+		} else if (revalue) {
+			ledger.revalue(evaluationPool);
+		} else {
+			ledger.markToMarket(evaluationPool);
+		}
+	}
+
+	/**
+	*	Records the time since the end of the previous phase, on the days the profiler times
+	*	@param timing the profiler if the day is timed, null otherwise
+	*	@param phase phase that just ended
+	*	@param from time the phase started
+	*	@return time the phase ended
+	*/
+	private static long lap(TickProfiler timing, int phase, long from) {
+		if (timing == null) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		timing.record(phase, now - from);
+		return now;
+	}
+
+	/**
+	*	Every agent, in trading order, finds its partner through the trade index and
+	*	records its trade as an intent for the settlement stage
+	*	Matching only reads the agents' rankings, which do not change while trading
+	*/
+	void matchAgents() {
+		tradeIndex.rebuild(agents);
+		settlement.clear();
+		for (Agent a : agents) {
+			Agent tradeAgent = a.findTradeAgent(tradeIndex);
+			if (tradeAgent != null) {
+				Stock s = a.getTradeStock();
+				settlement.add(a.getAgentId(), tradeAgent.getAgentId(), s.getStockId(),
+					s.getStockPrice() + s.getTickSize(), config.getTradeMax());
+			}
+		}
+	}
+
+	/**
+	*	Every agent places its orders in a random order, matching as they arrive
+	*	Orders are day orders: whatever is still resting at the end of the day is cancelled
+	*	and every stock that traded is moved to the price of its last trade, the agents'
+	*	assets then being marked to those prices
+	*	The profiler counts the orders placed as attempted, the trades they made as executed
+	*	and the orders left unfilled as rejected
+	*/
+	void tradeOrderBooks() {
+		orderFills = 0;
+		for (Agent a : agents) {
+			a.placeOrders(orderBooks, config.getTradeMax());
+		}
+		int submitted = 0;
+		int unfilled = 0;
+		for (int i = 0; i < orderBooks.length; i++) {
+			OrderBook book = orderBooks[i];
+			if (book.getLastTradeTick() != OrderBook.NO_PRICE) {
+				stocks.get(i).applyTradePrice(book.toPrice(book.getLastTradeTick()));
+			}
+			submitted += book.getSubmittedOrders();
+			unfilled += book.getOrderCount();
+			book.clear();
+			book.resetTrades();
+		}
+		markLedger(false);
+		if (profiler != null) {
+			profiler.countTrades(submitted, orderFills, unfilled);
+		}
+	}
+
+	/**
+	*	@return order book of every stock, or null when the agents trade by swapping
+	*/
+	public OrderBook[] getOrderBooks() {
+		return this.orderBooks;
+	}
+
+	/**
+	*	Every agent re-evaluates its portfolio
+	*	Agents only write to their own indices, so when more than one thread is configured
+	*	the agent list is split between the threads of the evaluation pool, which also
+	*	settles the larger rounds of trades
+	*/
+	void evaluateAgents() {
+		MarketSnapshot snapshot = marketData.getSnapshot();
+		if (evaluationPool == null) {
+			for (Agent a : agents) {
+				a.evaluatePortfolio(snapshot);
+			}
+		} else {
+			evaluationPool.invoke(new AgentEvaluation(agents, snapshot, 0, agents.size()));
+		}
+	}
+
+	/**
+	*	@return settlement stage of the last day traded by swapping
+	*/
+	public TradeSettlement getSettlement() {
+		return this.settlement;
+	}
+
+	/**
+	*	Releases the threads of the evaluation pool, the engine can not advance afterwards
+	*/
+	public void shutdown() {
+		if (evaluationPool != null) {
+			evaluationPool.shutdown();
+		}
+	}
+
+	/**
+	*	Records the two marketplace indices, the aggregated values of each stock price
+	*	and the companies' market capitalisation values calculated by the market data stage
+	*/
+	private void calcIndex() {
+		double totalPrice = marketData.getPriceIndex();
+		double totalmarketcap = marketData.getMarketcapIndex();
+		marketcap.add(totalmarketcap);
+		index.add(totalPrice);
+		if (eventLog != null) {
+			try {
+				eventLog.index(day, totalPrice, totalmarketcap);
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private void logPrice(Stock s) {
+		try {
+			eventLog.price(day, s);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	*	Logs the settled trades of the day in trading order
+	*/
+	private void logTrades() {
+		try {
+			for (int i = 0; i < settlement.size(); i++) {
+				if (settlement.isAccepted(i)) {
+					eventLog.trade(day, settlement.getStockId(i), settlement.getBuyer(i), settlement.getSeller(i),
+						settlement.getVolume(i), settlement.getSharePrice(i));
+				}
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	*	Settles the trades of the order books in the agent store
+	*	The buyer pays the seller the price of the resting order for every stock traded and
+	*	is counted a transaction
+	*/
+	class OrderSettlement implements OrderBook.TradeListener {
+		public void trade(int stockId, int buyer, int seller, int priceTick, int quantity) {
+			double sharePrice = orderBooks[stockId].toPrice(priceTick);
+			double cost = sharePrice * quantity;
+			store.addHoldings(buyer, stockId, quantity);
+			store.addCash(buyer, -cost);
+			store.addHoldings(seller, stockId, -quantity);
+			store.addCash(seller, cost);
+			store.transactions[buyer]++;
+			orderFills++;
+			if (eventLog != null) {
+				try {
+					eventLog.trade(day, stockId, buyer, seller, quantity, sharePrice);
+				} catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+
+	/**
+	*	@return the index series and a snapshot of every agent and stock as they are now
+	*/
+	public SimulationResult getResult() {
+		SimulationResult result = new SimulationResult(config, index, marketcap, agents, stocks);
+		if (store.getMarginAccounts() != null) {
+			result.setMarginAccounts(store.getMarginAccounts());
+		}
+		return result;
+	}
+
+	/**
+	*	Fork-join task evaluating a range of the agent list
+	*	Ranges larger than EVALUATION_BATCH are split in half
+	*/
+	@SuppressWarnings("serial")
+	static class AgentEvaluation extends RecursiveAction {
+		private List<Agent> agents;
+		private MarketSnapshot market;
+		private int from;
+		private int to;
+
+		AgentEvaluation(List<Agent> newAgents, MarketSnapshot newMarket, int newFrom, int newTo) {
+			this.agents = newAgents;
+			this.market = newMarket;
+			this.from = newFrom;
+			this.to = newTo;
+		}
+
+		protected void compute() {
+			if (to - from <= EVALUATION_BATCH) {
+				for (int i = from; i < to; i++) {
+					agents.get(i).evaluatePortfolio(market);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new AgentEvaluation(agents, market, from, middle), new AgentEvaluation(agents, market, middle, to));
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package MarketSimulator;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+
+/**
+*	The SimulationResult class holds the outcome of a simulation run.
+*
+*	It is a plain copy of the data the MarketPlace window displays, so it stays valid
+*	after the engine has moved on and can be kept around when many runs are made:
+*	- the price index and market capitalisation index of every day
+*	- a snapshot of every agent
+*	- a snapshot of every stock
+*	- when agents could overcommit, the state of their margin accounts
+*
+*	@author Alexandros Antoniou
+*/
+public class SimulationResult {
+
+	private SimulationConfig config;
+	private double[] index;
+	private double[] marketcap;
+	private ArrayList<AgentSnapshot> agents;
+	private ArrayList<StockSnapshot> stocks;
+	private int marginAccountCount;
+	private int borrowerCount;
+	private int marginCallCount;
+	private double totalLoan;
+
+	SimulationResult(SimulationConfig newConfig, ArrayList<Double> newIndex, ArrayList<Double> newMarketcap,
+		ArrayList<Agent> agentList, ArrayList<Stock> stockList) {
+		this.config = newConfig;
+		this.index = toArray(newIndex);
+		this.marketcap = toArray(newMarketcap);
+		this.agents = new ArrayList<AgentSnapshot>();
+		for (Agent a : agentList) {
+			agents.add(new AgentSnapshot(a));
+		}
+		this.stocks = new ArrayList<StockSnapshot>();
+		for (Stock s : stockList) {
+			stocks.add(new StockSnapshot(s));
+		}
+	}
+
+	private static double[] toArray(ArrayList<Double> values) {
+		double[] array = new double[values.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+
+	public SimulationConfig getConfig() {
+		return this.config;
+	}
+
+	public double[] getIndex() {
+		return this.index;
+	}
+
+	public double[] getMarketCap() {
+		return this.marketcap;
+	}
+
+	public ArrayList<AgentSnapshot> getAgents() {
+		return this.agents;
+	}
+
+	public ArrayList<StockSnapshot> getStocks() {
+		return this.stocks;
+	}
+
+	/**
+	*	Records the state of the margin accounts at the end of the run
+	*/
+	void setMarginAccounts(MarginAccounts accounts) {
+		this.marginAccountCount = accounts.getAccountCount();
+		this.borrowerCount = accounts.getBorrowerCount();
+		this.marginCallCount = accounts.getMarginCallCount();
+		this.totalLoan = accounts.getTotalLoan();
+	}
+
+	/**
+	*	@return number of agents who could trade on margin, 0 if no agent could overcommit
+	*/
+	public int getMarginAccountCount() {
+		return this.marginAccountCount;
+	}
+
+	/**
+	*	@return number of agents owing money at the end of the run
+	*/
+	public int getBorrowerCount() {
+		return this.borrowerCount;
+	}
+
+	/**
+	*	@return number of agents margin called at the end of the run
+	*/
+	public int getMarginCallCount() {
+		return this.marginCallCount;
+	}
+
+	public double getTotalLoan() {
+		return this.totalLoan;
+	}
+
+	/**
+	*	@return the last value of the price index, 0 if the simulation has not run
+	*/
+	public double getFinalIndex() {
+		return index.length == 0 ? 0.0 : index[index.length - 1];
+	}
+
+	/**
+	*	@return the total number of transactions made by all the agents
+	*/
+	public long getTotalTransactions() {
+		long total = 0;
+		for (AgentSnapshot a : agents) {
+			total += a.getTransactions();
+		}
+		return total;
+	}
+
+	/**
+	*	Prints a short summary of the run followed by the stock table
+	*	@param out stream to print to
+	*/
+	public void print(PrintStream out) {
+		double high = Double.NEGATIVE_INFINITY;
+		double low = Double.POSITIVE_INFINITY;
+		for (double v : index) {
+			high = Math.max(high, v);
+			low = Math.min(low, v);
+		}
+		out.println("MarketPlace " + config);
+		out.println(String.format("Index: %.2f High: %.2f Low: %.2f", getFinalIndex(), high, low));
+		out.println("Transactions: " + getTotalTransactions());
+		if (marginAccountCount > 0) {
+			out.println(String.format("Margin accounts: %d Borrowing: %d Margin called: %d Total loan: %.2f",
+				marginAccountCount, borrowerCount, marginCallCount, totalLoan));
+		}
+		for (StockSnapshot s : stocks) {
+			out.println(String.format("%s\t%s\t%.2f\t%.4f", s.getName(), s.getCompanyName(), s.getPrice(), s.getVolatility()));
+		}
+	}
+
+	/**
+	*	Copy of the values shown for an agent in the agent table
+	*/
+	public static class AgentSnapshot {
+		private double cash;
+		private double assets;
+		private int risk;
+		private int epsWeight;
+		private int peWeight;
+		private int transactions;
+
+		AgentSnapshot(Agent a) {
+			this.cash = a.getAgentCash();
+			this.assets = a.getAgentAssets();
+			this.risk = a.getRisk();
+			this.epsWeight = a.getEPS();
+			this.peWeight = a.getPE();
+			this.transactions = a.getTransactions();
+		}
+
+		public double getCash() {
+			return this.cash;
+		}
+
+		public double getAssets() {
+			return this.assets;
+		}
+
+		public int getRisk() {
+			return this.risk;
+		}
+
+		public int getEPS() {
+			return this.epsWeight;
+		}
+
+		public int getPE() {
+			return this.peWeight;
+		}
+
+		public int getTransactions() {
+			return this.transactions;
+		}
+	}
+
+	/**
+	*	Copy of the values shown for a stock in the stock table
+	*/
+	public static class StockSnapshot {
+		private String name;
+		private String companyName;
+		private double price;
+		private double priceChange;
+		private double volatility;
+		private int volume;
+
+		StockSnapshot(Stock s) {
+			this.name = s.getStockName();
+			this.companyName = s.getStockCompanyName();
+			this.price = s.getStockPrice();
+			this.priceChange = s.getStockPriceChange();
+			this.volatility = s.getStockVolatility();
+			this.volume = s.getStockCompany().getVolume();
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public String getCompanyName() {
+			return this.companyName;
+		}
+
+		public double getPrice() {
+			return this.price;
+		}
+
+		public double getPriceChange() {
+			return this.priceChange;
+		}
+
+		public double getVolatility() {
+			return this.volatility;
+		}
+
+		public int getVolume() {
+			return this.volume;
+		}
+	}
+}
@@ -66,7 +66,6 @@ public class SimulationSettings extends JFrame implements ActionListener, Change
 	GridLayout settingLayout;
 	Font previewFont;
 	private int agentsPop, stocksPop, simLength, overcommitA, overcommitB, overcommitC;	
-	private Set<Integer> overcommitSet;
 
 	SimulationSettings() {
 		setTitle(MarketPlace.TITLE_STRING);
@@ -269,20 +268,16 @@ public class SimulationSettings extends JFrame implements ActionListener, Change
 			agentsPop = agents.getValue();
 			stocksPop = stocks.getValue();
 			simLength = Integer.parseInt(days.getText());
-			overcommitSet = new HashSet<Integer>();
-			overcommitSet.add(overcommitA);
-			overcommitSet.add(overcommitB);
-			overcommitSet.add(overcommitC);
-			new MarketPlace(agentsPop, stocksPop, simLength, overcommitSet);
+			new MarketPlace(agentsPop, stocksPop, simLength, overcommitA, overcommitB, overcommitC);
 			this.dispose();
 		}
 		if (source==resetValues) {
 			agents.setValue(AGENTS_INIT);
 			stocks.setValue(STOCKS_INIT);
 			days.setText(""+DAYS_INIT);
-			overcommitA = 33;
-			overcommitB = 33;
-			overcommitC = 33;
+			overcommitA = 0;
+			overcommitB = 0;
+			overcommitC = 0;
 			advSettings.resetSliders();
 		}
 		if (source==exitSim) {
@@ -0,0 +1,122 @@
+package MarketSimulator;
+
+import java.util.ArrayList;
+
+/**
+*	SimulationWorker runs a SimulationEngine on its own thread and publishes frames of its
+*	progress for the window to draw while it runs.
+*
+*	Frames are taken between two days, at most once every frame interval, so drawing
+*	never slows down the days themselves. They are passed through a SpscQueue, with the
+*	worker the only producer and the Swing event thread the only consumer. When the queue
+*	is full the frame is dropped, and the index values it held are carried over to the
+*	next frame, so frames coalesce while the window is busy and no day is ever lost.
+*	The last frame of the run is always delivered.
+*
+*	@author Alexandros Antoniou
+*/
+public class SimulationWorker implements Runnable {
+
+	public static final int FRAME_INTERVAL = 33;
+	public static final int QUEUE_CAPACITY = 4;
+
+	private SimulationEngine engine;
+	private SpscQueue<DashboardFrame> frames = new SpscQueue<DashboardFrame>(QUEUE_CAPACITY);
+	private long frameInterval;
+	private int published;
+	private volatile boolean cancelled;
+	private Thread thread;
+
+	/**
+	*	@param newEngine engine to run, not to be touched by any other thread until the last frame
+	*	@param frameMillis least number of milliseconds between two frames
+	*/
+	SimulationWorker(SimulationEngine newEngine, int frameMillis) {
+		this.engine = newEngine;
+		this.frameInterval = frameMillis * 1000000L;
+	}
+
+	/**
+	*	Starts running the engine on a new thread
+	*/
+	public void start() {
+		thread = new Thread(this, "simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	*	Stops the run after the current day, no more frames are published
+	*/
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	*	@return the frames published by the worker, to be polled from the Swing event thread only
+	*/
+	public SpscQueue<DashboardFrame> getFrames() {
+		return this.frames;
+	}
+
+	public void run() {
+		long nextFrame = System.nanoTime();
+		try {
+			while (!cancelled && engine.getDay() < engine.getConfig().getSimulationLength()) {
+				engine.tick();
+				long now = System.nanoTime();
+				if (now - nextFrame >= 0) {
+					publish();
+					nextFrame = now + frameInterval;
+				}
+			}
+		} finally {
+			engine.shutdown();
+			DashboardFrame last = takeFrame(true);
+			while (!cancelled && !frames.offer(last)) {
+				try {
+					Thread.sleep(frameInterval / 1000000L);
+				} catch(InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	*	Takes a frame and publishes it if the queue has room
+	*	@return whether the frame was published
+	*/
+	private boolean publish() {
+		if (frames.offer(takeFrame(false))) {
+			published = engine.getIndex().size();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	*	Takes a frame of the index values not yet published, the current state of every stock
+	*	and the summary of the engine's profiler
+	*/
+	private DashboardFrame takeFrame(boolean finished) {
+		ArrayList<Double> index = engine.getIndex();
+		ArrayList<Double> marketcap = engine.getMarketCap();
+		int count = index.size() - published;
+		double[] newIndex = new double[count];
+		double[] newMarketcap = new double[count];
+		for (int i = 0; i < count; i++) {
+			newIndex[i] = index.get(published + i);
+			newMarketcap[i] = marketcap.get(published + i);
+		}
+		ArrayList<Stock> stocks = engine.getStocks();
+		DashboardFrame frame = new DashboardFrame(engine.getDay(), published, newIndex, newMarketcap, stocks.size(), finished);
+		for (int i = 0; i < stocks.size(); i++) {
+			frame.setStock(i, stocks.get(i));
+		}
+		if (engine.getProfiler() != null) {
+			frame.setProfile(engine.getProfiler().summarise());
+		}
+		return frame;
+	}
+}
@@ -0,0 +1,73 @@
+package MarketSimulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+*	SpscQueue is a bounded queue for exactly one thread adding elements and one other
+*	thread taking them, without any locks.
+*
+*	The elements are kept in a ring buffer. The producer only ever writes the tail and
+*	the consumer only ever writes the head, each publishing its own counter with lazySet
+*	after touching the buffer, so neither thread waits for the other. A full queue
+*	refuses new elements instead of blocking, leaving the producer to decide what to do.
+*
+*	@author Alexandros Antoniou
+*/
+public class SpscQueue<E> {
+
+	private final Object[] buffer;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	*	@param capacity number of elements the queue holds, rounded up to a power of two
+	*/
+	SpscQueue(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.buffer = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	*	Adds an element, only to be called from the producing thread
+	*	@param element element to add
+	*	@return false if the queue is full and the element was not added
+	*/
+	public boolean offer(E element) {
+		long t = tail.get();
+		if (t - head.get() == buffer.length) {
+			return false;
+		}
+		buffer[(int)t & mask] = element;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	*	Takes the oldest element, only to be called from the consuming thread
+	*	@return the oldest element, null if the queue is empty
+	*/
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long h = head.get();
+		if (h == tail.get()) {
+			return null;
+		}
+		int i = (int)h & mask;
+		E element = (E)buffer[i];
+		buffer[i] = null;
+		head.lazySet(h + 1);
+		return element;
+	}
+
+	public int getCapacity() {
+		return buffer.length;
+	}
+}
@@ -1,7 +1,6 @@
 package MarketSimulator;
 
-import java.util.Random;
-import java.util.ArrayList;
+import java.util.List;
 
 /**
 *	Stock class is an object modelled after stocks put forth for trade in a stock exchange by companies.
@@ -14,6 +13,7 @@ import java.util.ArrayList;
 *	- a Company type to represent the company that owns it
 *	- the stock's price change
 *	- a tick size, defined as the minimum amount a stock's price is allowed to change
+*	- the history of the stock's past prices
 *	
 *	Operations include returning the values of these properties of the stocks and the calculation of
 *	a new stock price
@@ -24,12 +24,16 @@ public class Stock {
 
 	public static final double TICK_SIZE = 0.01;
 
+	private int id;
 	private String name;
 	private double price;
 	protected Company company;
 	private double priceChange;
-	private ArrayList<Double> pastStockPrices;
+	private PriceHistory pastStockPrices;
 	private double volatility;
+	private VolatilityTracker volatilityTracker;
+	private RandomSource random;
+	private double tickSize = TICK_SIZE;
 
 	/**
 	*	Initialises a stock object instance
@@ -41,8 +45,74 @@ public class Stock {
 		this.name = newName;
 		this.company = newCompany;
 		this.price = startingPrice;
-		this.pastStockPrices = new ArrayList<Double>();
+		this.pastStockPrices = new PriceHistory();
 		this.pastStockPrices.add(this.price);
+		this.volatilityTracker = VolatilityTracker.cumulative();
+		this.volatilityTracker.update(this.price);
+		this.volatility = this.volatilityTracker.getVolatility();
+		this.random = new RandomSource();
+	}
+
+	public int getStockId() {
+		return this.id;
+	}
+
+	/**
+	*	The id of a stock is its position in the marketplace's list of stocks
+	*	It doubles as the hash code, so it must be set before the stock is put into any HashMap
+	*	@param newId position of the stock in the marketplace
+	*/
+	void setStockId(int newId) {
+		this.id = newId;
+	}
+
+	/**
+	*	Gives the stock its own stream of random numbers for its price updates
+	*	@param newRandom random number generator split off the run's generator
+	*/
+	void setRandomSource(RandomSource newRandom) {
+		this.random = newRandom;
+	}
+
+	/**
+	*	@param newTickSize least amount the price of the stock moves by, TICK_SIZE by default
+	*/
+	void setTickSize(double newTickSize) {
+		this.tickSize = newTickSize;
+	}
+
+	public double getTickSize() {
+		return this.tickSize;
+	}
+
+	RandomSource getRandomSource() {
+		return this.random;
+	}
+
+	VolatilityTracker getVolatilityTracker() {
+		return this.volatilityTracker;
+	}
+
+	/**
+	*	Restores the values of the stock saved in a checkpoint
+	*	@param newPrice price of the stock
+	*	@param newPriceChange last price change of the stock
+	*	@param newHistory past prices of the stock
+	*	@param newTracker volatility tracker with the statistics of the past prices
+	*/
+	void restoreState(double newPrice, double newPriceChange, PriceHistory newHistory, VolatilityTracker newTracker) {
+		this.price = newPrice;
+		this.priceChange = newPriceChange;
+		this.pastStockPrices = newHistory;
+		this.volatilityTracker = newTracker;
+		this.volatility = newTracker.getVolatility();
+	}
+
+	/**
+	*	Stocks hash by id so that HashMaps keyed by stock iterate in the same order on every run
+	*/
+	public int hashCode() {
+		return this.id;
 	}
 
 	public Company getStockCompany() {
@@ -66,52 +136,64 @@ public class Stock {
 	}
 
 	/**
-	*	A random number is generated with Gaussian distribution with mean of 0.0 and standard deviation of 1.0
-	*	The sign of the random number decides whether the price change is positive or negative
+	*	A random number is drawn uniformly between 0.0 and 1.0 from the stock's own random number generator
+	*	The random number decides whether the price change is positive or negative
 	*	The price change is then multiplied and the ticksize is added or subtracted
 	*	This new price change is added to the old stock price
+	*	The new price is recorded in the price history and fed to the volatility tracker
 	*/
 	public void updateStockPrice() {
-		double chance;
-		Random updt = new Random();
-		chance = updt.nextDouble();
-		this.priceChange = TICK_SIZE * 1000 * chance + TICK_SIZE;
+		double chance = this.random.nextDouble();
+		this.priceChange = tickSize * 1000 * chance + tickSize;
 		if (chance < 0.7) {
 			this.priceChange = - this.priceChange;
 		}
 		this.price += this.priceChange;
 		if (this.price < 0) {
-			this.price = TICK_SIZE;
+			this.price = tickSize;
 		}
 		this.pastStockPrices.add(this.price);
+		this.volatilityTracker.update(this.price);
+		this.volatility = this.volatilityTracker.getVolatility();
+	}
+
+	/**
+	*	Moves the stock to the price it last traded at in its order book
+	*	The difference is added to the day's price change and the next price update
+	*	starts from the traded price, the price history and volatility are left to the
+	*	price updates
+	*	@param tradePrice price of the stock's last trade
+	*/
+	public void applyTradePrice(double tradePrice) {
+		this.priceChange += tradePrice - this.price;
+		this.price = tradePrice;
 	}
 
 	/**
 	*	Calculates the volatility of a stock
-	*	Volatility is defined as the standard deviation of the returns of a stock over a 
+	*	Volatility is defined as the standard deviation of the past prices of a stock over a 
 	*	given time period
-	*	We calculate it by first finding the average value of the past prices of the stock
-	*	Then we calculate the difference between each past price and the mean we just got
-	*	We square these deviations and add them together
-	*	Finally we divide this new sum by the number of past stock prices
+	*	The volatility tracker is updated once per price change, so this is a constant time
+	*	lookup rather than a scan over the whole price history
 	*	@return the stock's volatility as a Double
 	*/
 	public double calcVolatility() {
-		double tempMean = 0;
-		double sqrDev = 0;
-		for (Double p : this.pastStockPrices) {
-			tempMean+=p / this.pastStockPrices.size();
-		}
+		this.volatility = this.volatilityTracker.getVolatility();
+		return this.volatility;
+	}
 
-		for (Double p : this.pastStockPrices) {
-			sqrDev += Math.pow((p - tempMean), 2);
+	/**
+	*	Replaces the volatility tracker of the stock, e.g. with a rolling window or
+	*	exponentially weighted one
+	*	The price history still held is replayed into the new tracker
+	*	@param tracker the new volatility tracker
+	*/
+	public void setVolatilityTracker(VolatilityTracker tracker) {
+		for (int i = 0; i < this.pastStockPrices.size(); i++) {
+			tracker.update(this.pastStockPrices.get(i));
 		}
-
-		double variance = sqrDev / this.pastStockPrices.size();
-		
-		this.volatility = Math.sqrt(variance);
-
-		return Math.sqrt(variance);
+		this.volatilityTracker = tracker;
+		this.volatility = tracker.getVolatility();
 	}
 
 	/**
@@ -125,10 +207,48 @@ public class Stock {
 		return this.price / epsRatio;
 	}
 
-	public ArrayList<Double> getPastPrices() {
+	/**
+	*	@return a read-only view of the past prices still held, oldest first
+	*/
+	public List<Double> getPastPrices() {
+		return this.pastStockPrices.asList();
+	}
+
+	public PriceHistory getPriceHistory() {
 		return this.pastStockPrices;
 	}
 
+	/**
+	*	Gives the stock the prices it had before the simulation started, e.g. read from a price history CSV
+	*	The past prices are followed by the current price in the history, and the volatility
+	*	is recalculated over all of them
+	*	@param prices past prices, oldest first
+	*	@param count number of prices to take from the array
+	*/
+	public void setPastPrices(double[] prices, int count) {
+		PriceHistory history = new PriceHistory(this.pastStockPrices.getLimit());
+		VolatilityTracker tracker = this.volatilityTracker.emptyCopy();
+		for (int i = 0; i < count; i++) {
+			history.add(prices[i]);
+			tracker.update(prices[i]);
+		}
+		history.add(this.price);
+		tracker.update(this.price);
+		this.pastStockPrices = history;
+		this.volatilityTracker = tracker;
+		this.volatility = tracker.getVolatility();
+	}
+
+	/**
+	*	Sets how many past prices the stock keeps, the oldest prices are dropped
+	*	once the limit is reached
+	*	The volatility tracker is not affected, it keeps its own statistics
+	*	@param limit maximum number of prices kept, PriceHistory.UNLIMITED to keep all of them
+	*/
+	public void setHistoryLimit(int limit) {
+		this.pastStockPrices = this.pastStockPrices.withLimit(limit);
+	}
+
 	public double getStockVolatility() {
 		return this.volatility;
 	}
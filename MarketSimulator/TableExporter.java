@@ -0,0 +1,321 @@
+package MarketSimulator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+*	The TableExporter class writes the agent table, the stock table and the index series
+*	of a simulation to files.
+*
+*	Two formats are written:
+*	- CSV files, agents.csv, stocks.csv and index.csv
+*	- columnar binary files, agents.col, stocks.col and index.col
+*
+*	The values are read straight from the engine's model rather than from the Swing tables,
+*	and every file is written through a direct buffer flushed to a FileChannel. Numbers are
+*	formatted by hand into the buffer instead of through String.format, so the cost per
+*	cell is a few arithmetic operations and exports of millions of agents stay fast.
+*
+*	Layout of a columnar file, little-endian:
+*	int magic, int version, int row count, int column count,
+*	then for every column its name (short length followed by UTF-8 bytes) and a type byte,
+*	then the values of every column one column after the other. Doubles and ints are stored
+*	as 8 and 4 byte values, strings as a short length followed by UTF-8 bytes.
+*
+*	@author Alexandros Antoniou
+*/
+public class TableExporter {
+
+	public static final int MAGIC = 0x4d53434c;
+	public static final int VERSION = 1;
+	public static final byte TYPE_INT = 1;
+	public static final byte TYPE_DOUBLE = 2;
+	public static final byte TYPE_STRING = 3;
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L};
+
+	private AgentStore store;
+	private ArrayList<Stock> stocks;
+	private ArrayList<Double> index;
+	private ArrayList<Double> marketcap;
+
+	TableExporter(SimulationEngine engine) {
+		this.store = engine.getAgentStore();
+		this.stocks = engine.getStocks();
+		this.index = engine.getIndex();
+		this.marketcap = engine.getMarketCap();
+	}
+
+	/**
+	*	Writes every table in both formats
+	*	@param directory directory the files are written to, created if missing
+	*/
+	public void exportAll(File directory) throws IOException {
+		exportCSV(directory);
+		exportColumnar(directory);
+	}
+
+	/**
+	*	Writes agents.csv, stocks.csv and index.csv
+	*	@param directory directory the files are written to, created if missing
+	*/
+	public void exportCSV(File directory) throws IOException {
+		directory.mkdirs();
+		try (ChannelWriter out = new ChannelWriter(new File(directory, "agents.csv"))) {
+			out.putText("AgentID,Cash,Assets,Vol Risk,EPS Risk,PE Risk,Transactions\n");
+			for (int a = 0; a < store.getAgentCount(); a++) {
+				out.putLong(a).putChar(',');
+				out.putFixed(store.cash[a], 2).putChar(',');
+				out.putFixed(store.getAssets(a), 2).putChar(',');
+				out.putLong(store.risk[a]).putChar(',');
+				out.putLong(store.epsWeight[a]).putChar(',');
+				out.putLong(store.peWeight[a]).putChar(',');
+				out.putLong(store.transactions[a]).putChar('\n');
+			}
+		}
+		try (ChannelWriter out = new ChannelWriter(new File(directory, "stocks.csv"))) {
+			out.putText("Stock,Price,Company,Price Change,Volatility,Volume\n");
+			for (Stock s : stocks) {
+				out.putCSVText(s.getStockName()).putChar(',');
+				out.putFixed(s.getStockPrice(), 2).putChar(',');
+				out.putCSVText(s.getStockCompanyName()).putChar(',');
+				out.putFixed(s.getStockPriceChange() / s.getStockPrice() * 100, 4).putChar(',');
+				out.putFixed(s.getStockVolatility(), 4).putChar(',');
+				out.putLong(s.getStockCompany().getVolume()).putChar('\n');
+			}
+		}
+		try (ChannelWriter out = new ChannelWriter(new File(directory, "index.csv"))) {
+			out.putText("Day,Price Index,Market Cap Index\n");
+			for (int i = 0; i < index.size(); i++) {
+				out.putLong(i).putChar(',');
+				out.putFixed(index.get(i), 4).putChar(',');
+				out.putFixed(marketcap.get(i), 4).putChar('\n');
+			}
+		}
+	}
+
+	/**
+	*	Writes agents.col, stocks.col and index.col
+	*	@param directory directory the files are written to, created if missing
+	*/
+	public void exportColumnar(File directory) throws IOException {
+		directory.mkdirs();
+		int agentCount = store.getAgentCount();
+		try (ChannelWriter out = new ChannelWriter(new File(directory, "agents.col"))) {
+			out.header(agentCount, new String[] {"AgentID", "Cash", "Assets", "Vol Risk", "EPS Risk", "PE Risk", "Transactions"},
+				new byte[] {TYPE_INT, TYPE_DOUBLE, TYPE_DOUBLE, TYPE_INT, TYPE_INT, TYPE_INT, TYPE_INT});
+			for (int a = 0; a < agentCount; a++) {
+				out.putInt(a);
+			}
+			out.putDoubles(store.cash, agentCount);
+			for (int a = 0; a < agentCount; a++) {
+				out.putDouble(store.getAssets(a));
+			}
+			out.putInts(store.risk, agentCount);
+			out.putInts(store.epsWeight, agentCount);
+			out.putInts(store.peWeight, agentCount);
+			out.putInts(store.transactions, agentCount);
+		}
+		try (ChannelWriter out = new ChannelWriter(new File(directory, "stocks.col"))) {
+			out.header(stocks.size(), new String[] {"Stock", "Price", "Company", "Price Change", "Volatility", "Volume"},
+				new byte[] {TYPE_STRING, TYPE_DOUBLE, TYPE_STRING, TYPE_DOUBLE, TYPE_DOUBLE, TYPE_INT});
+			for (Stock s : stocks) {
+				out.putString(s.getStockName());
+			}
+			for (Stock s : stocks) {
+				out.putDouble(s.getStockPrice());
+			}
+			for (Stock s : stocks) {
+				out.putString(s.getStockCompanyName());
+			}
+			for (Stock s : stocks) {
+				out.putDouble(s.getStockPriceChange());
+			}
+			for (Stock s : stocks) {
+				out.putDouble(s.getStockVolatility());
+			}
+			for (Stock s : stocks) {
+				out.putInt(s.getStockCompany().getVolume());
+			}
+		}
+		try (ChannelWriter out = new ChannelWriter(new File(directory, "index.col"))) {
+			out.header(index.size(), new String[] {"Price Index", "Market Cap Index"}, new byte[] {TYPE_DOUBLE, TYPE_DOUBLE});
+			for (Double v : index) {
+				out.putDouble(v);
+			}
+			for (Double v : marketcap) {
+				out.putDouble(v);
+			}
+		}
+	}
+
+	/**
+	*	Buffered writer over a FileChannel
+	*	Text and numbers are encoded directly into a direct byte buffer which is
+	*	written to the channel whenever it fills up
+	*/
+	static class ChannelWriter implements Closeable {
+		private static final int MAX_NUMBER_LENGTH = 32;
+
+		private FileChannel channel;
+		private ByteBuffer buffer;
+		private byte[] digits = new byte[MAX_NUMBER_LENGTH];
+
+		ChannelWriter(File file) throws IOException {
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		ChannelWriter putChar(char c) throws IOException {
+			ensure(1);
+			buffer.put((byte)c);
+			return this;
+		}
+
+		ChannelWriter putText(String text) throws IOException {
+			putBytes(text.getBytes(StandardCharsets.UTF_8));
+			return this;
+		}
+
+		/**
+		*	Writes text as a CSV field, quoting it if it holds a comma, quote or line break
+		*/
+		ChannelWriter putCSVText(String text) throws IOException {
+			boolean quote = false;
+			for (int i = 0; i < text.length() && !quote; i++) {
+				char c = text.charAt(i);
+				quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+			}
+			if (!quote) {
+				return putText(text);
+			}
+			return putChar('"').putText(text.replace("\"", "\"\"")).putChar('"');
+		}
+
+		ChannelWriter putLong(long value) throws IOException {
+			ensure(MAX_NUMBER_LENGTH);
+			if (value == Long.MIN_VALUE) {
+				return putText(Long.toString(value));
+			}
+			if (value < 0) {
+				buffer.put((byte)'-');
+				value = -value;
+			}
+			int length = 0;
+			do {
+				digits[length++] = (byte)('0' + value % 10);
+				value /= 10;
+			} while (value > 0);
+			while (length > 0) {
+				buffer.put(digits[--length]);
+			}
+			return this;
+		}
+
+		/**
+		*	Writes a double with a fixed number of decimals, rounding half up,
+		*	falling back to Double.toString for values too large for a long
+		*/
+		ChannelWriter putFixed(double value, int decimals) throws IOException {
+			if (Double.isNaN(value) || Double.isInfinite(value)) {
+				return putText(Double.toString(value));
+			}
+			long scale = POWERS_OF_TEN[decimals];
+			double scaled = Math.abs(value) * scale;
+			if (scaled >= Long.MAX_VALUE / 2) {
+				return putText(Double.toString(value));
+			}
+			long rounded = Math.round(scaled);
+			ensure(MAX_NUMBER_LENGTH);
+			if (value < 0 && rounded != 0) {
+				buffer.put((byte)'-');
+			}
+			putLong(rounded / scale);
+			if (decimals > 0) {
+				buffer.put((byte)'.');
+				long fraction = rounded % scale;
+				for (long p = scale / 10; p > 0; p /= 10) {
+					buffer.put((byte)('0' + fraction / p % 10));
+				}
+			}
+			return this;
+		}
+
+		void header(int rows, String[] names, byte[] types) throws IOException {
+			putInt(MAGIC);
+			putInt(VERSION);
+			putInt(rows);
+			putInt(names.length);
+			for (int i = 0; i < names.length; i++) {
+				putString(names[i]);
+				ensure(1);
+				buffer.put(types[i]);
+			}
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putDouble(double value) throws IOException {
+			ensure(8);
+			buffer.putDouble(value);
+		}
+
+		void putInts(int[] values, int length) throws IOException {
+			for (int i = 0; i < length; i++) {
+				putInt(values[i]);
+			}
+		}
+
+		void putDoubles(double[] values, int length) throws IOException {
+			for (int i = 0; i < length; i++) {
+				putDouble(values[i]);
+			}
+		}
+
+		void putString(String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			ensure(2);
+			buffer.putShort((short)bytes.length);
+			putBytes(bytes);
+		}
+
+		private void putBytes(byte[] bytes) throws IOException {
+			for (int i = 0; i < bytes.length; i += BUFFER_SIZE) {
+				int length = Math.min(BUFFER_SIZE, bytes.length - i);
+				ensure(length);
+				buffer.put(bytes, i, length);
+			}
+		}
+
+		public void close() throws IOException {
+			flush();
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,356 @@
+package MarketSimulator;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+*	TickProfiler measures where the time of every day of a simulation goes.
+*
+*	The engine reads the clock once between every two phases of a day and hands the
+*	durations to the profiler, which counts them in a LatencyHistogram per phase and one
+*	for the whole day. Next to the timings it counts the trades the agents attempted,
+*	the ones executed and the ones rejected: intents that failed settlement when the
+*	agents swap, orders left unfilled at the end of the day in the order books. Where the
+*	JVM can tell, the bytes allocated by the thread running the engine are counted too.
+*
+*	Reading the clock is not free, tens of nanoseconds on some machines, which would be a
+*	noticeable share of the days of a small marketplace. The profiler therefore measures
+*	what profiling a day costs when it is created, and only times one day in so many,
+*	picking the interval from the length of the days timed so far so that the timing
+*	stays around TARGET_OVERHEAD of the time of the days. The histograms are then a
+*	sample of the days, every day of a large marketplace and one in a few of a small one.
+*	The trades are counted on every day.
+*
+*	A profiler belongs to the thread running the engine. The window gets a Summary, an
+*	immutable copy taken on that thread, with every frame.
+*
+*	@author Alexandros Antoniou
+*/
+public class TickProfiler {
+
+	public static final int PRICES = 0;
+	public static final int MARK = 1;
+	public static final int EVALUATION = 2;
+	public static final int SHUFFLE = 3;
+	public static final int MATCHING = 4;
+	public static final int SETTLEMENT = 5;
+	public static final int ORDER_BOOKS = 6;
+	public static final int INDEX = 7;
+	public static final int TICK = 8;
+	public static final String[] PHASES = {"Prices", "Mark to market", "Evaluation", "Shuffle", "Matching",
+		"Settlement", "Order books", "Index", "Whole day"};
+	public static final double[] PERCENTILES = {50, 99};
+	public static final double TARGET_OVERHEAD = 0.001;
+	public static final int MAX_INTERVAL = 1024;
+
+	private LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+	private long tradesAttempted;
+	private long tradesExecuted;
+	private long tradesRejected;
+	private com.sun.management.ThreadMXBean allocation;
+	private long allocatedBytes;
+	private long allocationStart;
+	private long days;
+	private long dayCost;
+	private int interval = 1;
+	private int untilTimed = 1;
+
+	TickProfiler() {
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new LatencyHistogram();
+		}
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)threads;
+			if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+				this.allocation = bean;
+			}
+		}
+		this.dayCost = measureDayCost();
+	}
+
+	/**
+	*	@return nanoseconds it takes to read the clock before and after every phase and,
+	*	if counted, the bytes allocated at the start and end of a day
+	*/
+	private long measureDayCost() {
+		int reads = 1000;
+		long start = System.nanoTime();
+		for (int i = 0; i < reads; i++) {
+			System.nanoTime();
+		}
+		long clock = System.nanoTime() - start;
+		long allocationReads = 0;
+		if (allocation != null) {
+			long id = Thread.currentThread().getId();
+			start = System.nanoTime();
+			for (int i = 0; i < reads; i++) {
+				allocation.getThreadAllocatedBytes(id);
+			}
+			allocationReads = System.nanoTime() - start;
+		}
+		long cost = (clock * (PHASES.length + 1) + allocationReads * 2) / reads;
+		return Math.max(1, cost);
+	}
+
+	/**
+	*	Counts a day and tells whether it is one of the days timed
+	*/
+	boolean isTimedDay() {
+		days++;
+		if (--untilTimed > 0) {
+			return false;
+		}
+		untilTimed = interval;
+		return true;
+	}
+
+	/**
+	*	Marks the start of a timed day
+	*	@return the time the day started, in nanoseconds
+	*/
+	long startTick() {
+		if (allocation != null) {
+			allocationStart = allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	*	Records how long a phase of the day took
+	*	@param phase one of the phase constants
+	*	@param nanos duration of the phase in nanoseconds
+	*/
+	void record(int phase, long nanos) {
+		histograms[phase].record(nanos);
+	}
+
+	/**
+	*	Marks the end of a timed day and picks how many days pass until the next one is timed
+	*	@param start time the day started, as returned by startTick
+	*/
+	void endTick(long start) {
+		histograms[TICK].record(System.nanoTime() - start);
+		if (allocation != null) {
+			allocatedBytes += allocation.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocationStart;
+		}
+		double dayLength = Math.max(1, histograms[TICK].getMean());
+		interval = (int)Math.max(1, Math.min(MAX_INTERVAL, Math.ceil(dayCost / (TARGET_OVERHEAD * dayLength))));
+	}
+
+	/**
+	*	Counts the trades of a day
+	*	@param attempted trades the agents attempted, intents or orders
+	*	@param executed trades that went through
+	*	@param rejected trades that did not go through
+	*/
+	void countTrades(int attempted, int executed, int rejected) {
+		tradesAttempted += attempted;
+		tradesExecuted += executed;
+		tradesRejected += rejected;
+	}
+
+	/**
+	*	@return number of days profiled, timed or not
+	*/
+	public long getDays() {
+		return this.days;
+	}
+
+	/**
+	*	@return nanoseconds timing a day was measured to take
+	*/
+	public long getDayCost() {
+		return this.dayCost;
+	}
+
+	/**
+	*	@return number of days between two timed days at the moment
+	*/
+	public int getInterval() {
+		return this.interval;
+	}
+
+	public LatencyHistogram getHistogram(int phase) {
+		return this.histograms[phase];
+	}
+
+	public long getTradesAttempted() {
+		return this.tradesAttempted;
+	}
+
+	public long getTradesExecuted() {
+		return this.tradesExecuted;
+	}
+
+	public long getTradesRejected() {
+		return this.tradesRejected;
+	}
+
+	/**
+	*	@return whether the bytes allocated by the engine's thread are counted
+	*/
+	public boolean isAllocationCounted() {
+		return this.allocation != null;
+	}
+
+	/**
+	*	@return bytes allocated by the engine's thread during the days timed, 0 if they are not counted
+	*/
+	public long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+
+	/**
+	*	@return an immutable copy of the counts and timings, for another thread to read
+	*/
+	public Summary summarise() {
+		return new Summary(this);
+	}
+
+	/**
+	*	Prints the timings of every phase that ran and the counters
+	*	@param out stream to print to
+	*/
+	public void print(PrintStream out) {
+		summarise().print(out);
+	}
+
+	/**
+	*	Counts and timings of a profiler at one moment, times in microseconds
+	*/
+	public static class Summary {
+		private long[] counts = new long[PHASES.length];
+		private double[] means = new double[PHASES.length];
+		private double[] medians = new double[PHASES.length];
+		private double[] p99s = new double[PHASES.length];
+		private double[] maxima = new double[PHASES.length];
+		private double[] shares = new double[PHASES.length];
+		private long tradesAttempted;
+		private long tradesExecuted;
+		private long tradesRejected;
+		private long allocatedBytes;
+		private boolean allocationCounted;
+		private long days;
+		private double overhead;
+
+		Summary(TickProfiler profiler) {
+			long dayTotal = profiler.histograms[TICK].getTotal();
+			for (int i = 0; i < PHASES.length; i++) {
+				LatencyHistogram h = profiler.histograms[i];
+				long[] percentiles = h.getValuesAtPercentiles(PERCENTILES);
+				counts[i] = h.getCount();
+				means[i] = h.getMean() / 1000;
+				medians[i] = percentiles[0] / 1000.0;
+				p99s[i] = percentiles[1] / 1000.0;
+				maxima[i] = h.getMax() / 1000.0;
+				shares[i] = dayTotal == 0 ? 0 : 100.0 * h.getTotal() / dayTotal;
+			}
+			this.tradesAttempted = profiler.tradesAttempted;
+			this.tradesExecuted = profiler.tradesExecuted;
+			this.tradesRejected = profiler.tradesRejected;
+			this.allocatedBytes = profiler.allocatedBytes;
+			this.allocationCounted = profiler.isAllocationCounted();
+			this.days = profiler.days;
+			double allDays = counts[TICK] == 0 ? 0 : (double)dayTotal / counts[TICK] * days;
+			this.overhead = allDays == 0 ? 0 : 100.0 * profiler.dayCost * counts[TICK] / allDays;
+		}
+
+		/**
+		*	@return number of days profiled, timed or not
+		*/
+		public long getDays() {
+			return this.days;
+		}
+
+		/**
+		*	@return estimate of the time spent timing the days, as a percentage of the time of all the days
+		*/
+		public double getOverhead() {
+			return this.overhead;
+		}
+
+		/**
+		*	@return number of timed days the phase ran on
+		*/
+		public long getCount(int phase) {
+			return this.counts[phase];
+		}
+
+		public double getMean(int phase) {
+			return this.means[phase];
+		}
+
+		public double getMedian(int phase) {
+			return this.medians[phase];
+		}
+
+		public double getP99(int phase) {
+			return this.p99s[phase];
+		}
+
+		public double getMax(int phase) {
+			return this.maxima[phase];
+		}
+
+		/**
+		*	@return percentage of the time of the timed days spent in the phase
+		*/
+		public double getShare(int phase) {
+			return this.shares[phase];
+		}
+
+		public long getTradesAttempted() {
+			return this.tradesAttempted;
+		}
+
+		public long getTradesExecuted() {
+			return this.tradesExecuted;
+		}
+
+		public long getTradesRejected() {
+			return this.tradesRejected;
+		}
+
+		/**
+		*	@return bytes allocated per timed day by the engine's thread, NaN if they are not counted
+		*/
+		public double getAllocatedPerDay() {
+			if (!allocationCounted) {
+				return Double.NaN;
+			}
+			return counts[TICK] == 0 ? 0 : (double)allocatedBytes / counts[TICK];
+		}
+
+		/**
+		*	@return the counters as a line of text
+		*/
+		public String getCounters() {
+			String counters = "Trades attempted: " + tradesAttempted + " executed: " + tradesExecuted + " rejected: " + tradesRejected;
+			if (allocationCounted) {
+				counters += String.format(" Allocated: %.1f KB/day", getAllocatedPerDay() / 1024);
+			}
+			return counters;
+		}
+
+		/**
+		*	@return how many of the days were timed and what timing them cost, as a line of text
+		*/
+		public String getSampling() {
+			return String.format("Timed %d of %d days, profiling overhead about %.3f%%", counts[TICK], days, overhead);
+		}
+
+		void print(PrintStream out) {
+			out.println(getSampling());
+			out.println(String.format("%-15s %8s %10s %10s %10s %10s %7s", "Phase (us)", "days", "mean", "p50", "p99", "max", "share"));
+			for (int i = 0; i < PHASES.length; i++) {
+				if (counts[i] > 0) {
+					out.println(String.format("%-15s %8d %10.1f %10.1f %10.1f %10.1f %6.1f%%", PHASES[i], counts[i],
+						means[i], medians[i], p99s[i], maxima[i], shares[i]));
+				}
+			}
+			out.println(getCounters());
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package MarketSimulator;
+
+/**
+*	TopKRanking picks the k preferred stocks out of a row of total index values.
+*
+*	Agents only ever trade one of the first stocks of their ranking, so there is no need
+*	to sort every stock they hold. The selection keeps a bounded max-heap of k stocks in
+*	the output arrays themselves: every stock is compared with the least preferred stock
+*	kept so far and replaces it if it is preferred. The heap is then sorted in place.
+*	This costs O(n log k) per ranking and allocates nothing, the output arrays are reused
+*	from one day to the next. Values are offered one at a time as they are calculated,
+*	so the caller never needs to hold the values of every stock at once.
+*
+*	A stock is preferred over another if its total index is lower, ties are broken by the
+*	lower stock id, which is the order the agents have always walked their stocks in.
+*
+*	@author Alexandros Antoniou
+*/
+public class TopKRanking {
+
+	private TopKRanking() {
+	}
+
+	/**
+	*	Offers a stock to a ranking being built, keeping it if it is among the k preferred so far
+	*	The ranking is a heap until sort is called
+	*	@param ids stock ids of the ranking
+	*	@param rankedValues values of the ranking
+	*	@param from position of the first ranked stock in the arrays
+	*	@param size number of stocks ranked so far, 0 for a new ranking
+	*	@param k maximum number of stocks to rank
+	*	@param id id of the stock offered
+	*	@param value value of the stock offered
+	*	@return number of stocks ranked after the offer
+	*/
+	public static int offer(int[] ids, double[] rankedValues, int from, int size, int k, int id, double value) {
+		if (size < k) {
+			ids[from + size] = id;
+			rankedValues[from + size] = value;
+			siftUp(ids, rankedValues, from, size);
+			return size + 1;
+		}
+		if (preferred(value, id, rankedValues[from], ids[from])) {
+			ids[from] = id;
+			rankedValues[from] = value;
+			siftDown(ids, rankedValues, from, 0, size);
+		}
+		return size;
+	}
+
+	/**
+	*	Turns a ranking built with offer into its final order, most preferred first
+	*	@param ids stock ids of the ranking
+	*	@param rankedValues values of the ranking
+	*	@param from position of the first ranked stock in the arrays
+	*	@param size number of stocks ranked
+	*/
+	public static void sort(int[] ids, double[] rankedValues, int from, int size) {
+		for (int end = size - 1; end > 0; end--) {
+			swap(ids, rankedValues, from, 0, end);
+			siftDown(ids, rankedValues, from, 0, end);
+		}
+	}
+
+	/**
+	*	@return whether the stock with value v1 and id id1 is preferred over the other one
+	*/
+	static boolean preferred(double v1, int id1, double v2, int id2) {
+		int c = Double.compare(v1, v2);
+		return c < 0 || (c == 0 && id1 < id2);
+	}
+
+	/**
+	*	The root of the heap is the least preferred stock kept
+	*/
+	private static void siftUp(int[] ids, double[] values, int from, int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!preferred(values[from + parent], ids[from + parent], values[from + i], ids[from + i])) {
+				return;
+			}
+			swap(ids, values, from, parent, i);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(int[] ids, double[] values, int from, int i, int size) {
+		while (true) {
+			int left = 2 * i + 1;
+			if (left >= size) {
+				return;
+			}
+			int largest = left;
+			int right = left + 1;
+			if (right < size && preferred(values[from + left], ids[from + left], values[from + right], ids[from + right])) {
+				largest = right;
+			}
+			if (!preferred(values[from + i], ids[from + i], values[from + largest], ids[from + largest])) {
+				return;
+			}
+			swap(ids, values, from, i, largest);
+			i = largest;
+		}
+	}
+
+	private static void swap(int[] ids, double[] values, int from, int i, int j) {
+		int id = ids[from + i];
+		ids[from + i] = ids[from + j];
+		ids[from + j] = id;
+		double v = values[from + i];
+		values[from + i] = values[from + j];
+		values[from + j] = v;
+	}
+}
@@ -0,0 +1,63 @@
+package MarketSimulator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+*	The TradeIndex class maps every stock to the agents whose best ranked stock it is.
+*
+*	Agents look for a trading partner by walking their own ranking of stocks and
+*	picking the first agent whose top stock matches. Scanning every agent for every
+*	stock made each search O(agents x stocks); with the index built once per day
+*	a search costs one lookup per stock in the agent's ranking.
+*
+*	The agents of each stock are kept in the order of the agent list the index was
+*	built from, so the first one is the same agent a linear scan would have found.
+*
+*	@author Alexandros Antoniou
+*/
+public class TradeIndex {
+
+	private HashMap<Stock, ArrayList<Agent>> topHolders;
+
+	TradeIndex() {
+		this.topHolders = new HashMap<Stock, ArrayList<Agent>>();
+	}
+
+	/**
+	*	Rebuilds the index from the current rankings of the agents
+	*	Must be called after the agents have sorted their stocks and whenever
+	*	the order of the agent list changes
+	*	@param agents all agents in the marketplace, in trading order
+	*/
+	public void rebuild(List<Agent> agents) {
+		for (ArrayList<Agent> holders : topHolders.values()) {
+			holders.clear();
+		}
+		for (Agent a : agents) {
+			Stock top = a.getPreferredStock();
+			if (top == null) {
+				continue;
+			}
+			ArrayList<Agent> holders = topHolders.get(top);
+			if (holders == null) {
+				holders = new ArrayList<Agent>();
+				topHolders.put(top, holders);
+			}
+			holders.add(a);
+		}
+	}
+
+	/**
+	*	@param s stock to look up
+	*	@return the first agent whose best ranked stock is s, or null if there is none
+	*/
+	public Agent getFirstAgent(Stock s) {
+		ArrayList<Agent> holders = topHolders.get(s);
+		if (holders == null || holders.isEmpty()) {
+			return null;
+		}
+		return holders.get(0);
+	}
+}
@@ -0,0 +1,222 @@
+package MarketSimulator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+*	TradeSettlement applies the trades matched during a day in one batch.
+*
+*	Matching only decides who trades with whom; it records a trade intent for every
+*	agent in trading order without touching anyone's cash or holdings. Settlement then
+*	checks each intent against the buyer's cash and the seller's holdings and applies it.
+*
+*	Two trades conflict when they share an agent, and the outcome of a trade only depends
+*	on the earlier trades of its two agents. Every intent is therefore put in a round one
+*	after the latest round of either of its agents. The trades of a round never share an
+*	agent, so a round can be settled on several threads at once, while the rounds are
+*	settled one after the other. Conflicts are always resolved in trading order, and the
+*	result is exactly the one of settling every trade one at a time.
+*
+*	The intents are kept in primitive arrays which are reused from one day to the next.
+*
+*	@author Alexandros Antoniou
+*/
+public class TradeSettlement {
+
+	public static final int SETTLEMENT_BATCH = 1024;
+
+	private AgentStore store;
+	private int size;
+	private int[] buyers = new int[0];
+	private int[] sellers = new int[0];
+	private int[] stockIds = new int[0];
+	private int[] volumes = new int[0];
+	private double[] sharePrices = new double[0];
+	private boolean[] accepted = new boolean[0];
+	private int[] rounds = new int[0];
+	private int[] order = new int[0];
+	private int[] roundStart = new int[2];
+	private int[] lastRound = new int[0];
+	private int roundCount;
+
+	/**
+	*	@param newStore store holding the cash and holdings of the agents
+	*/
+	TradeSettlement(AgentStore newStore) {
+		this.store = newStore;
+	}
+
+	/**
+	*	Forgets the intents of the previous day
+	*/
+	public void clear() {
+		this.size = 0;
+		this.roundCount = 0;
+	}
+
+	/**
+	*	Records a trade intent, intents are settled in the order they are added
+	*	@param buyer id of the agent buying
+	*	@param seller id of the agent selling
+	*	@param stockId id of the stock traded
+	*	@param sharePrice price paid per stock
+	*	@param volume number of stocks traded
+	*/
+	public void add(int buyer, int seller, int stockId, double sharePrice, int volume) {
+		if (size == buyers.length) {
+			int capacity = Math.max(16, size * 2);
+			buyers = Arrays.copyOf(buyers, capacity);
+			sellers = Arrays.copyOf(sellers, capacity);
+			stockIds = Arrays.copyOf(stockIds, capacity);
+			volumes = Arrays.copyOf(volumes, capacity);
+			sharePrices = Arrays.copyOf(sharePrices, capacity);
+			accepted = Arrays.copyOf(accepted, capacity);
+			rounds = Arrays.copyOf(rounds, capacity);
+			order = Arrays.copyOf(order, capacity);
+		}
+		buyers[size] = buyer;
+		sellers[size] = seller;
+		stockIds[size] = stockId;
+		volumes[size] = volume;
+		sharePrices[size] = sharePrice;
+		accepted[size] = false;
+		size++;
+	}
+
+	/**
+	*	Settles every intent recorded since the last clear
+	*	@param pool pool the larger rounds are split across, null to settle on the calling thread
+	*	@return number of trades that went through
+	*/
+	public int settle(ForkJoinPool pool) {
+		assignRounds();
+		for (int r = 1; r <= roundCount; r++) {
+			int from = roundStart[r];
+			int to = roundStart[r + 1];
+			if (pool == null || to - from <= SETTLEMENT_BATCH) {
+				settleRange(from, to);
+			} else {
+				pool.invoke(new RoundSettlement(this, from, to));
+			}
+		}
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (accepted[i]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	*	Puts every intent in the round after the latest round of its buyer and seller and
+	*	orders the intents by round, keeping the trading order within a round
+	*/
+	private void assignRounds() {
+		if (lastRound.length < store.getAgentCount()) {
+			lastRound = new int[store.getAgentCount()];
+		}
+		roundCount = 0;
+		for (int i = 0; i < size; i++) {
+			int r = 1 + Math.max(lastRound[buyers[i]], lastRound[sellers[i]]);
+			rounds[i] = r;
+			lastRound[buyers[i]] = r;
+			lastRound[sellers[i]] = r;
+			roundCount = Math.max(roundCount, r);
+		}
+		for (int i = 0; i < size; i++) {
+			lastRound[buyers[i]] = 0;
+			lastRound[sellers[i]] = 0;
+		}
+		if (roundStart.length < roundCount + 2) {
+			roundStart = new int[roundCount + 2];
+		} else {
+			Arrays.fill(roundStart, 0, roundCount + 2, 0);
+		}
+		for (int i = 0; i < size; i++) {
+			roundStart[rounds[i] + 1]++;
+		}
+		for (int r = 1; r <= roundCount + 1; r++) {
+			roundStart[r] += roundStart[r - 1];
+		}
+		for (int i = 0; i < size; i++) {
+			order[roundStart[rounds[i]]++] = i;
+		}
+		for (int r = roundCount + 1; r > 0; r--) {
+			roundStart[r] = roundStart[r - 1];
+		}
+		roundStart[0] = 0;
+	}
+
+	private void settleRange(int from, int to) {
+		for (int k = from; k < to; k++) {
+			int i = order[k];
+			accepted[i] = store.trade(buyers[i], sellers[i], stockIds[i], sharePrices[i], volumes[i]);
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	*	@return number of rounds the last settlement took, 1 when no two trades shared an agent
+	*/
+	public int getRoundCount() {
+		return this.roundCount;
+	}
+
+	public int getBuyer(int i) {
+		return this.buyers[i];
+	}
+
+	public int getSeller(int i) {
+		return this.sellers[i];
+	}
+
+	public int getStockId(int i) {
+		return this.stockIds[i];
+	}
+
+	public int getVolume(int i) {
+		return this.volumes[i];
+	}
+
+	public double getSharePrice(int i) {
+		return this.sharePrices[i];
+	}
+
+	/**
+	*	@return whether the intent went through when it was settled
+	*/
+	public boolean isAccepted(int i) {
+		return this.accepted[i];
+	}
+
+	/**
+	*	Fork-join task settling a range of a round
+	*	Ranges larger than SETTLEMENT_BATCH are split in half
+	*/
+	@SuppressWarnings("serial")
+	static class RoundSettlement extends RecursiveAction {
+		private TradeSettlement settlement;
+		private int from;
+		private int to;
+
+		RoundSettlement(TradeSettlement newSettlement, int newFrom, int newTo) {
+			this.settlement = newSettlement;
+			this.from = newFrom;
+			this.to = newTo;
+		}
+
+		protected void compute() {
+			if (to - from <= SETTLEMENT_BATCH) {
+				settlement.settleRange(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new RoundSettlement(settlement, from, middle), new RoundSettlement(settlement, middle, to));
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package MarketSimulator;
+
+import java.util.ArrayList;
+
+/**
+*	Universe holds the companies and stocks a marketplace starts with, as read from the
+*	CSVs or generated.
+*
+*	Stocks are listed in the order they were read, which becomes their id in the marketplace.
+*
+*	@author Alexandros Antoniou
+*/
+public class Universe {
+
+	private ArrayList<Company> companies;
+	private ArrayList<Stock> stocks;
+
+	/**
+	*	@param newCompanies every company of the universe
+	*	@param newStocks every stock of the universe, each owned by one of the companies
+	*/
+	Universe(ArrayList<Company> newCompanies, ArrayList<Stock> newStocks) {
+		this.companies = newCompanies;
+		this.stocks = newStocks;
+	}
+
+	public ArrayList<Company> getCompanies() {
+		return this.companies;
+	}
+
+	public ArrayList<Stock> getStocks() {
+		return this.stocks;
+	}
+
+	public int getStockCount() {
+		return this.stocks.size();
+	}
+}
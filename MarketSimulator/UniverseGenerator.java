@@ -0,0 +1,92 @@
+package MarketSimulator;
+
+import java.util.ArrayList;
+
+/**
+*	UniverseGenerator creates the companies and stocks of a marketplace procedurally,
+*	for runs with more stocks than the CSVs hold.
+*
+*	Every generated company lists a single stock, as the companies of the CSVs do.
+*	The starting prices of the stocks and the incomes of the companies are drawn from
+*	log-normal distributions, each given by its median and its spread, the standard
+*	deviation of the logarithm of the values. A spread of 0 gives every stock the median.
+*
+*	Stocks are named S1, S2, ... and companies Company 1, Company 2, ... in the order
+*	they are generated, and the same random number generator always gives the same universe.
+*
+*	@author Alexandros Antoniou
+*/
+public class UniverseGenerator {
+
+	public static final double DEFAULT_PRICE_MEDIAN = 150;
+	public static final double DEFAULT_PRICE_SPREAD = 1.0;
+	public static final double DEFAULT_INCOME_MEDIAN = 10;
+	public static final double DEFAULT_INCOME_SPREAD = 0.5;
+
+	private double priceMedian = DEFAULT_PRICE_MEDIAN;
+	private double priceSpread = DEFAULT_PRICE_SPREAD;
+	private double incomeMedian = DEFAULT_INCOME_MEDIAN;
+	private double incomeSpread = DEFAULT_INCOME_SPREAD;
+
+	UniverseGenerator() {
+	}
+
+	/**
+	*	Generates the companies and stocks, in the same form CSVParser.parseCSV returns them
+	*	@param numberOfStock number of stocks and companies to generate
+	*	@param random random number generator the prices and incomes are drawn from
+	*	@return the generated companies and stocks
+	*/
+	public Universe generate(int numberOfStock, RandomSource random) {
+		ArrayList<Company> arrayC = new ArrayList<Company>(numberOfStock);
+		ArrayList<Stock> arrayS = new ArrayList<Stock>(numberOfStock);
+		for (int i = 1; i <= numberOfStock; i++) {
+			Company c = new Company("Company " + i, logNormal(random, incomeMedian, incomeSpread));
+			double price = Math.round(logNormal(random, priceMedian, priceSpread) * 100) / 100.0;
+			arrayC.add(c);
+			arrayS.add(new Stock("S" + i, c, Math.max(price, Stock.TICK_SIZE)));
+		}
+
+		return new Universe(arrayC, arrayS);
+	}
+
+	private static double logNormal(RandomSource random, double median, double spread) {
+		return median * Math.exp(spread * random.nextGaussian());
+	}
+
+	public double getPriceMedian() {
+		return this.priceMedian;
+	}
+
+	public double getPriceSpread() {
+		return this.priceSpread;
+	}
+
+	public double getIncomeMedian() {
+		return this.incomeMedian;
+	}
+
+	public double getIncomeSpread() {
+		return this.incomeSpread;
+	}
+
+	public void setPriceMedian(double newMedian) {
+		this.priceMedian = newMedian;
+	}
+
+	public void setPriceSpread(double newSpread) {
+		this.priceSpread = newSpread;
+	}
+
+	public void setIncomeMedian(double newMedian) {
+		this.incomeMedian = newMedian;
+	}
+
+	public void setIncomeSpread(double newSpread) {
+		this.incomeSpread = newSpread;
+	}
+
+	public String toString() {
+		return "synthetic price=" + priceMedian + "/" + priceSpread + " income=" + incomeMedian + "/" + incomeSpread;
+	}
+}
@@ -0,0 +1,261 @@
+package MarketSimulator;
+
+import java.io.IOException;
+
+/**
+*	VolatilityTracker keeps the running statistics a Stock needs to report its volatility.
+*
+*	Instead of walking the full price history every time the volatility is requested,
+*	each tracker is fed one price per tick and keeps its mean and variance up to date
+*	in constant time. Three flavours are provided:
+*	- a cumulative tracker over the whole history (Welford's algorithm), matching the
+*	  population standard deviation the Stock class has always reported
+*	- a rolling window tracker over the last n prices
+*	- an exponentially weighted tracker that favours recent prices
+*
+*	@author Alexandros Antoniou
+*/
+public abstract class VolatilityTracker {
+
+	public static final int DEFAULT_WINDOW = 50;
+	public static final double DEFAULT_DECAY = 0.94;
+
+	static final byte CUMULATIVE = 1;
+	static final byte ROLLING = 2;
+	static final byte EXPONENTIAL = 3;
+
+	/**
+	*	@return a tracker over the complete price history
+	*/
+	public static VolatilityTracker cumulative() {
+		return new Cumulative();
+	}
+
+	/**
+	*	@param window number of most recent prices taken into account
+	*	@return a tracker over a fixed size window of prices
+	*/
+	public static VolatilityTracker rolling(int window) {
+		return new Rolling(window);
+	}
+
+	/**
+	*	@param decay weight kept by the old estimate on each update, between 0 and 1
+	*	@return an exponentially weighted tracker
+	*/
+	public static VolatilityTracker ewma(double decay) {
+		return new Exponential(decay);
+	}
+
+	/**
+	*	Feeds a new price into the tracker
+	*	@param price the latest price of the stock
+	*/
+	abstract void update(double price);
+
+	/**
+	*	@return the standard deviation of the prices seen by the tracker
+	*/
+	public abstract double getVolatility();
+
+	/**
+	*	@return a tracker of the same kind and settings that has not seen any price yet
+	*/
+	abstract VolatilityTracker emptyCopy();
+
+	/**
+	*	Writes the kind of the tracker and its statistics to a checkpoint
+	*/
+	abstract void writeState(Checkpoint.Output out);
+
+	/**
+	*	Recreates a tracker written by writeState
+	*	@throws IOException if the checkpoint ends first or the kind of tracker is unknown
+	*/
+	static VolatilityTracker readState(Checkpoint.Input in) throws IOException {
+		byte kind = in.getByte();
+		switch(kind) {
+			case CUMULATIVE:
+				Cumulative c = new Cumulative();
+				c.count = in.getLong();
+				c.mean = in.getDouble();
+				c.sqrDev = in.getDouble();
+				return c;
+			case ROLLING:
+				Rolling r = new Rolling(in.getInt());
+				r.count = in.getInt();
+				r.next = in.getInt();
+				r.replaced = in.getInt();
+				r.mean = in.getDouble();
+				r.sqrDev = in.getDouble();
+				in.getDoubles(r.window, 0, r.window.length);
+				return r;
+			case EXPONENTIAL:
+				Exponential e = new Exponential(in.getDouble());
+				e.started = in.getByte() != 0;
+				e.mean = in.getDouble();
+				e.variance = in.getDouble();
+				return e;
+			default:
+				throw new IOException("Unknown volatility tracker " + kind);
+		}
+	}
+
+	/**
+	*	Welford's online algorithm, the mean and the sum of squared deviations
+	*	are updated with every new price
+	*/
+	static class Cumulative extends VolatilityTracker {
+		private long count;
+		private double mean;
+		private double sqrDev;
+
+		void update(double price) {
+			count++;
+			double delta = price - mean;
+			mean += delta / count;
+			sqrDev += delta * (price - mean);
+		}
+
+		VolatilityTracker emptyCopy() {
+			return new Cumulative();
+		}
+
+		public double getVolatility() {
+			if (count == 0) {
+				return 0.0;
+			}
+			return Math.sqrt(sqrDev / count);
+		}
+
+		void writeState(Checkpoint.Output out) {
+			out.putByte(CUMULATIVE);
+			out.putLong(count);
+			out.putDouble(mean);
+			out.putDouble(sqrDev);
+		}
+	}
+
+	/**
+	*	Welford's algorithm over a circular buffer of the last n prices
+	*	When the window is full the oldest price is swapped out for the new one
+	*	The statistics are rebuilt from the buffer once per full turn of the window
+	*	so that rounding errors do not pile up over long simulations
+	*/
+	static class Rolling extends VolatilityTracker {
+		private double[] window;
+		private int count;
+		private int next;
+		private int replaced;
+		private double mean;
+		private double sqrDev;
+
+		Rolling(int size) {
+			if (size < 1) {
+				throw new IllegalArgumentException("Window size must be positive: " + size);
+			}
+			this.window = new double[size];
+		}
+
+		VolatilityTracker emptyCopy() {
+			return new Rolling(window.length);
+		}
+
+		void update(double price) {
+			if (count < window.length) {
+				window[next] = price;
+				count++;
+				double delta = price - mean;
+				mean += delta / count;
+				sqrDev += delta * (price - mean);
+			} else {
+				double old = window[next];
+				window[next] = price;
+				double oldMean = mean;
+				mean += (price - old) / count;
+				sqrDev += (price - old) * (price - mean + old - oldMean);
+				if (++replaced == window.length) {
+					replaced = 0;
+					recompute();
+				}
+			}
+			next = (next + 1) % window.length;
+		}
+
+		private void recompute() {
+			double total = 0;
+			for (double p : window) {
+				total += p;
+			}
+			mean = total / count;
+			sqrDev = 0;
+			for (double p : window) {
+				sqrDev += (p - mean) * (p - mean);
+			}
+		}
+
+		public double getVolatility() {
+			if (count == 0) {
+				return 0.0;
+			}
+			return Math.sqrt(Math.max(sqrDev, 0.0) / count);
+		}
+
+		void writeState(Checkpoint.Output out) {
+			out.putByte(ROLLING);
+			out.putInt(window.length);
+			out.putInt(count);
+			out.putInt(next);
+			out.putInt(replaced);
+			out.putDouble(mean);
+			out.putDouble(sqrDev);
+			out.putDoubles(window, 0, window.length);
+		}
+	}
+
+	/**
+	*	Exponentially weighted mean and variance
+	*	Every new price moves the estimates by (1 - decay) of its deviation
+	*/
+	static class Exponential extends VolatilityTracker {
+		private double decay;
+		private boolean started;
+		private double mean;
+		private double variance;
+
+		Exponential(double newDecay) {
+			if (newDecay <= 0 || newDecay >= 1) {
+				throw new IllegalArgumentException("Decay must be between 0 and 1: " + newDecay);
+			}
+			this.decay = newDecay;
+		}
+
+		VolatilityTracker emptyCopy() {
+			return new Exponential(decay);
+		}
+
+		void update(double price) {
+			if (!started) {
+				mean = price;
+				started = true;
+				return;
+			}
+			double alpha = 1 - decay;
+			double delta = price - mean;
+			mean += alpha * delta;
+			variance = decay * (variance + alpha * delta * delta);
+		}
+
+		public double getVolatility() {
+			return Math.sqrt(variance);
+		}
+
+		void writeState(Checkpoint.Output out) {
+			out.putByte(EXPONENTIAL);
+			out.putDouble(decay);
+			out.putByte((byte)(started ? 1 : 0));
+			out.putDouble(mean);
+			out.putDouble(variance);
+		}
+	}
+}